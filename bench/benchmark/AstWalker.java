@@ -0,0 +1,169 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lexical.TokenBuffer;
+import runtime.McProgram;
+import runtime.ProgramIO;
+import syntactic.Ast;
+import util.TokenType;
+
+// Interpretador ingênuo, só como referência para o ExecutionBenchmark:
+// percorre a Ast recursivamente, procura cada variável pelo nome num
+// HashMap e guarda os valores em objetos Integer/Float.
+public class AstWalker implements McProgram {
+    private final TokenBuffer tokens;
+    private final Ast ast;
+    private final Number[] literals;
+    private Map<String, Number> variables;
+
+    public AstWalker(TokenBuffer tokens, Ast ast) {
+        this.tokens = tokens;
+        this.ast = ast;
+        this.literals = new Number[ast.size()];
+        for (int node = 0; node < ast.size(); node++) {
+            if (ast.kind(node) == Ast.INTEGER) {
+                literals[node] = Integer.parseInt(tokens.text(ast.token(node)));
+            } else if (ast.kind(node) == Ast.FLOAT) {
+                literals[node] = Float.parseFloat(tokens.text(ast.token(node)));
+            } else if (ast.kind(node) == Ast.INT_CONSTANT) {
+                literals[node] = ast.token(node);
+            } else if (ast.kind(node) == Ast.FLOAT_CONSTANT) {
+                literals[node] = Float.intBitsToFloat(ast.token(node));
+            }
+        }
+    }
+
+    @Override
+    public void run(ProgramIO io) {
+        variables = new HashMap<>();
+        int program = ast.root();
+        for (int i = 0; i < ast.childCount(program); i++) {
+            int child = ast.child(program, i);
+            if (ast.kind(child) == Ast.VAR_SECTION) {
+                for (int j = 0; j < ast.childCount(child); j++) {
+                    int declaration = ast.child(child, j);
+                    boolean isFloat = tokens.type(ast.token(ast.child(declaration, 0))) == TokenType.FLOATING_DATA_TYPE;
+                    variables.put(name(declaration), isFloat ? (Number) 0f : (Number) 0);
+                }
+            } else {
+                block(child, io);
+            }
+        }
+    }
+
+    private String name(int node) {
+        return tokens.text(ast.token(node));
+    }
+
+    private void block(int node, ProgramIO io) {
+        for (int i = 0; i < ast.childCount(node); i++) {
+            int command = ast.child(node, i);
+            switch (ast.kind(command)) {
+                case Ast.INPUT:
+                    variables.put(name(command), variables.get(name(command)) instanceof Float
+                            ? (Number) io.readFloat() : (Number) io.readInt());
+                    break;
+                case Ast.PRINT: {
+                    int value = ast.child(command, 0);
+                    if (ast.kind(value) == Ast.STRING) {
+                        String text = name(value);
+                        io.print(text.substring(1, text.length() - 1));
+                    } else {
+                        Number result = evaluate(value);
+                        if (result instanceof Float) {
+                            io.print(result.floatValue());
+                        } else {
+                            io.print(result.intValue());
+                        }
+                    }
+                    break;
+                }
+                case Ast.ASSIGNMENT: {
+                    Number result = evaluate(ast.child(command, 0));
+                    variables.put(name(command), variables.get(name(command)) instanceof Float
+                            ? (Number) result.floatValue() : (Number) result.intValue());
+                    break;
+                }
+                default:
+                    if (condition(ast.child(command, 0))) {
+                        block(ast.child(command, 1), io);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private boolean condition(int node) {
+        String op = name(node);
+        switch (ast.kind(node)) {
+            case Ast.LOGICAL:
+                return op.equals("E")
+                        ? condition(ast.child(node, 0)) && condition(ast.child(node, 1))
+                        : condition(ast.child(node, 0)) || condition(ast.child(node, 1));
+            case Ast.RELATIONAL: {
+                Number left = evaluate(ast.child(node, 0));
+                Number right = evaluate(ast.child(node, 1));
+                if (left instanceof Float || right instanceof Float) {
+                    float a = left.floatValue();
+                    float b = right.floatValue();
+                    switch (op) {
+                        case "<": return a < b;
+                        case "<=": return a <= b;
+                        case ">": return a > b;
+                        case ">=": return a >= b;
+                        case "=": case "==": return a == b;
+                        default: return a != b;
+                    }
+                }
+                int a = left.intValue();
+                int b = right.intValue();
+                switch (op) {
+                    case "<": return a < b;
+                    case "<=": return a <= b;
+                    case ">": return a > b;
+                    case ">=": return a >= b;
+                    case "=": case "==": return a == b;
+                    default: return a != b;
+                }
+            }
+            default: {
+                Number value = evaluate(node);
+                return value instanceof Float ? value.floatValue() != 0 : value.intValue() != 0;
+            }
+        }
+    }
+
+    private Number evaluate(int node) {
+        switch (ast.kind(node)) {
+            case Ast.IDENTIFIER:
+                return variables.get(name(node));
+            case Ast.BINARY: {
+                Number left = evaluate(ast.child(node, 0));
+                Number right = evaluate(ast.child(node, 1));
+                String op = name(node);
+                if (left instanceof Float || right instanceof Float) {
+                    float a = left.floatValue();
+                    float b = right.floatValue();
+                    switch (op) {
+                        case "+": return a + b;
+                        case "-": return a - b;
+                        case "*": return a * b;
+                        default: return a / b;
+                    }
+                }
+                int a = left.intValue();
+                int b = right.intValue();
+                switch (op) {
+                    case "+": return a + b;
+                    case "-": return a - b;
+                    case "*": return a * b;
+                    default: return a / b;
+                }
+            }
+            default:
+                return literals[node];
+        }
+    }
+}
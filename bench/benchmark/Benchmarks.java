@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.nio.file.Paths;
+
+// Uso: java -cp out:out-bench benchmark.Benchmarks [--csv arquivo] [--quick] [filtro]
+public class Benchmarks {
+    private static String[][] corpora;
+
+    public static String[][] corpora() {
+        if (corpora == null) {
+            corpora = new String[][] {
+                    {"programa", Corpus.PROGRAMA},
+                    {"nested_ifs", Corpus.nestedIfs(200)},
+                    {"long_expressions", Corpus.longExpressions(200, 60, 7)},
+                    {"huge_var_section", Corpus.hugeVarSection(5_000)},
+                    {"comment_heavy", Corpus.commentHeavy(1_000)},
+            };
+        }
+        return corpora;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String csv = null;
+        String filter = "";
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--csv")) {
+                csv = args[++i];
+            } else if (args[i].equals("--quick")) {
+                quick = true;
+            } else {
+                filter = args[i];
+            }
+        }
+
+        Harness harness = quick ? new Harness(1, 2, 200) : new Harness(5, 5, 1000);
+        Report report = new Report();
+        if ("scanner".startsWith(filter) || filter.startsWith("scanner")) {
+            ScannerBenchmark.run(harness, report);
+        }
+        if ("parser".startsWith(filter) || filter.startsWith("parser")) {
+            ParserBenchmark.run(harness, report);
+        }
+        if ("expressions".startsWith(filter) || filter.startsWith("expressions")) {
+            ExpressionBenchmark.run(harness, report);
+        }
+        if ("keywords".startsWith(filter) || filter.startsWith("keywords")) {
+            KeywordLookupBenchmark.run(harness, report);
+        }
+        if ("execution".startsWith(filter) || filter.startsWith("execution")) {
+            ExecutionBenchmark.run(harness, report);
+        }
+        if ("errors".startsWith(filter) || filter.startsWith("errors")) {
+            ErrorBenchmark.run(harness, report);
+        }
+        if ("memory".startsWith(filter) || filter.startsWith("memory")) {
+            MemoryBenchmark.run(harness, report);
+        }
+        if (csv != null) {
+            report.writeCsv(Paths.get(csv));
+        }
+    }
+}
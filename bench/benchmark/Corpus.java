@@ -0,0 +1,217 @@
+package benchmark;
+
+import java.util.Random;
+
+// Programas .mc sintéticos com formatos diferentes, todos aceitos pelo Parser.
+public class Corpus {
+    private static final String[] VARS = {"x", "y", "z", "temp"};
+
+    // mesmo conteúdo de programa.mc
+    public static final String PROGRAMA =
+            "main {\n" +
+            "\tvar {\n" +
+            "\t\tx:int;\n" +
+            "\t\ty:int;\n" +
+            "\t\tz:int;\n" +
+            "\t\ttemp:int;\n" +
+            "\t}\n" +
+            "\t# Ordena três números em ordem crescente\n" +
+            "\tinput(x);\n" +
+            "\tinput(y);\n" +
+            "\tinput(z);\n" +
+            "\tif x > y then {\n" +
+            "\t\ttemp <- y;\n" +
+            "\t\ty <- x;\n" +
+            "\t\tx <- temp;\n" +
+            "\t}\n" +
+            "\tif (x > z E y <= z OU x != z) then {\n" +
+            "\t\ttemp <- z;\n" +
+            "\t\tz <- x;\n" +
+            "\t\tx <- temp;\n" +
+            "\t}\n" +
+            "\tif y > z then {\n" +
+            "\t\ttemp <- z;\n" +
+            "\t\tz <- y;\n" +
+            "\t\ty <- temp;\n" +
+            "\t}\n" +
+            "\tprint(\"Ordem crescente:\");\n" +
+            "\tprint(x);\n" +
+            "\tprint(y);\n" +
+            "\tprint(z);\n" +
+            "}";
+
+    private Corpus() {
+    }
+
+    private static void header(StringBuilder sb) {
+        sb.append("main {\n\tvar {\n");
+        for (String v : VARS) {
+            sb.append("\t\t").append(v).append(":int;\n");
+        }
+        sb.append("\t}\n");
+    }
+
+    public static String nestedIfs(int depth) {
+        StringBuilder sb = new StringBuilder();
+        header(sb);
+        for (int i = 0; i < depth; i++) {
+            sb.append("if x > ").append(i).append(" E y <= z then {\n");
+            sb.append("x <- x + 1;\n");
+        }
+        for (int i = 0; i < depth; i++) {
+            sb.append("}\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    // uma atribuição cujo valor tem depth níveis de parênteses
+    public static String nestedParens(int depth) {
+        StringBuilder sb = new StringBuilder();
+        header(sb);
+        sb.append("x <- ");
+        for (int i = 0; i < depth; i++) {
+            sb.append('(');
+        }
+        sb.append('1');
+        for (int i = 0; i < depth; i++) {
+            sb.append(" + ").append(VARS[i % VARS.length]).append(')');
+        }
+        return sb.append(";\n}\n").toString();
+    }
+
+    public static String longExpressions(int statements, int operands, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        header(sb);
+        for (int s = 0; s < statements; s++) {
+            sb.append(VARS[s % VARS.length]).append(" <- ");
+            expression(sb, random, operands);
+            sb.append(";\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    private static void expression(StringBuilder sb, Random random, int operands) {
+        for (int i = 0; i < operands; i++) {
+            if (i > 0) {
+                sb.append(' ').append("+-*/".charAt(random.nextInt(4))).append(' ');
+            }
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append(VARS[random.nextInt(VARS.length)]);
+                    break;
+                case 1:
+                    sb.append(random.nextInt(1000));
+                    break;
+                case 2:
+                    sb.append(random.nextInt(100)).append('.').append(random.nextInt(100));
+                    break;
+                default:
+                    sb.append('(').append(VARS[random.nextInt(VARS.length)]).append(" + 1)");
+            }
+        }
+    }
+
+    // ifs cujas condições encadeiam comparações com E/OU, algumas entre parênteses
+    public static String longConditions(int statements, int comparisons, long seed) {
+        String[] relational = {"<", "<=", ">", ">=", "==", "!="};
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        header(sb);
+        for (int s = 0; s < statements; s++) {
+            sb.append("if ");
+            for (int i = 0; i < comparisons; i++) {
+                if (i > 0) {
+                    sb.append(random.nextBoolean() ? " E " : " OU ");
+                }
+                boolean group = i > 0 && random.nextInt(4) == 0;
+                if (group) {
+                    sb.append('(');
+                }
+                // um '(' no início seria lido como condição entre parênteses
+                sb.append(VARS[random.nextInt(VARS.length)]).append(" * ");
+                expression(sb, random, 1 + random.nextInt(4));
+                sb.append(' ').append(relational[random.nextInt(relational.length)]).append(' ');
+                expression(sb, random, 1 + random.nextInt(4));
+                if (group) {
+                    sb.append(')');
+                }
+            }
+            sb.append(" then {\n");
+            sb.append(VARS[s % VARS.length]).append(" <- ");
+            expression(sb, random, 8);
+            sb.append(";\n}\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    public static String hugeVarSection(int variables) {
+        StringBuilder sb = new StringBuilder("main {\n\tvar {\n");
+        for (int i = 0; i < variables; i++) {
+            sb.append("\t\tvariavel_").append(i).append(i % 2 == 0 ? ":int;\n" : ":float;\n");
+        }
+        return sb.append("\t}\n\tprint(\"fim\");\n}\n").toString();
+    }
+
+    public static String commentHeavy(int blocks) {
+        StringBuilder sb = new StringBuilder();
+        header(sb);
+        for (int i = 0; i < blocks; i++) {
+            sb.append("# comentário de linha número ").append(i).append(" com algum texto a mais\n");
+            sb.append("/* comentário de bloco\n   com várias linhas\n   e símbolos + - * < > */\n");
+            sb.append("x <- x + ").append(i).append(";\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    // programa executável (tipos coerentes, divisores constantes não nulos) para o ExecutionBenchmark
+    public static String numeric(int statements, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder("main {\n\tvar {\n\t\ta:int;\n\t\tb:int;\n\t\tc:int;\n\t\tf:float;\n\t\tg:float;\n\t}\n");
+        sb.append("\tinput(a);\n\tinput(b);\n\tinput(c);\n\tinput(f);\n\tinput(g);\n");
+        for (int s = 0; s < statements; s++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.append("\tif a > b E f < 100.0 OU c != 0 then {\n\t\tc <- c - a / 3;\n\t}\n");
+                    break;
+                case 1:
+                    sb.append("\tf <- f * 0.5 + g * a - b / ").append(1 + random.nextInt(9)).append(";\n");
+                    break;
+                case 2:
+                    sb.append("\tg <- (g + f) / 2.0 + c;\n");
+                    break;
+                default:
+                    sb.append("\ta <- (a * ").append(1 + random.nextInt(5)).append(" + b - c) / ")
+                            .append(1 + random.nextInt(9)).append(" + 1;\n");
+                    break;
+            }
+        }
+        return sb.append("\tprint(a);\n\tprint(f);\n}\n").toString();
+    }
+
+    // variações inválidas de base: um caractere inserido, removido ou trocado em cada uma
+    public static String[] invalidPrograms(String base, int count, long seed) {
+        Random random = new Random(seed);
+        String[] programs = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder(base);
+            int at = random.nextInt(sb.length());
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.insert(at, '@');
+                    break;
+                case 1:
+                    sb.deleteCharAt(at);
+                    break;
+                case 2:
+                    sb.insert(at, ';');
+                    break;
+                default:
+                    sb.setCharAt(at, '.');
+                    break;
+            }
+            programs[i] = sb.toString();
+        }
+        return programs;
+    }
+}
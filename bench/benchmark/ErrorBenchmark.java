@@ -0,0 +1,66 @@
+package benchmark;
+
+import exceptions.ErrorMode;
+import exceptions.LexicalError;
+import exceptions.SyntacticException;
+import lexical.Scanner;
+import lexical.SourceReader;
+import lexical.TokenBuffer;
+import syntactic.Parser;
+
+// Vazão sobre um corpus de programas quase todos inválidos: parando no
+// primeiro erro com e sem captura da pilha, e no modo de recuperação, que
+// coleta todos os diagnósticos de cada arquivo.
+public class ErrorBenchmark {
+    private ErrorBenchmark() {
+    }
+
+    public static long firstError(char[][] programs, boolean messages) throws Exception {
+        for (char[] source : programs) {
+            try {
+                new Parser(new Scanner(SourceReader.of(source, source.length))).parse();
+            } catch (LexicalError | SyntacticException e) {
+                if (messages && e.getMessage() == null) {
+                    throw new IllegalStateException();
+                }
+            }
+        }
+        return programs.length;
+    }
+
+    public static long diagnose(char[][] programs, TokenBuffer buffer) throws Exception {
+        for (char[] source : programs) {
+            Parser.diagnose(source, source.length, buffer, null);
+        }
+        return programs.length;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        // nos ifs aninhados o erro acontece com muitos ifs ainda abertos
+        String[][] corpora = {
+                {"programa", Corpus.PROGRAMA},
+                {"nested_ifs", Corpus.nestedIfs(40)},
+        };
+        TokenBuffer buffer = new TokenBuffer();
+        boolean previous = ErrorMode.captureStackTraces();
+        try {
+            for (String[] entry : corpora) {
+                String[] corpus = Corpus.invalidPrograms(entry[1], 500, 3);
+                char[][] programs = new char[corpus.length][];
+                for (int i = 0; i < corpus.length; i++) {
+                    programs[i] = corpus[i].toCharArray();
+                }
+                String name = "errors." + entry[0];
+                ErrorMode.setCaptureStackTraces(true);
+                report.add(harness.measure(name + ".stack_traces", "programs", () -> firstError(programs, false)));
+                report.add(harness.measure(name + ".stack_traces.message", "programs", () -> firstError(programs, true)));
+                ErrorMode.setCaptureStackTraces(false);
+                report.add(harness.measure(name + ".stackless", "programs", () -> firstError(programs, false)));
+                report.add(harness.measure(name + ".stackless.message", "programs", () -> firstError(programs, true)));
+                report.add(harness.measure(name + ".diagnose", "programs", () -> diagnose(programs, buffer)));
+            }
+        } finally {
+            ErrorMode.setCaptureStackTraces(previous);
+        }
+    }
+}
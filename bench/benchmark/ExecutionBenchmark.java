@@ -0,0 +1,79 @@
+package benchmark;
+
+import codegen.CodeGenerator;
+import interpreter.RegisterCompiler;
+import interpreter.RegisterProgram;
+import lexical.TokenBuffer;
+import runtime.McProgram;
+import runtime.ProgramIO;
+import syntactic.Ast;
+import syntactic.Parser;
+
+// Executa o mesmo programa no AstWalker ingênuo, no RegisterProgram e no
+// bytecode gerado. A unidade é a execução do programa inteiro: os ifs pulam
+// instruções conforme a entrada, então o tamanho estático do RegisterProgram
+// não mede quantas instruções rodaram, e runs/s só compara os motores entre si.
+public class ExecutionBenchmark {
+    // entradas variam a cada chamada para o JIT não dobrar o programa inteiro em constantes
+    private static final ProgramIO IO = new ProgramIO() {
+        private int next;
+
+        @Override
+        public int readInt() {
+            next = (next + 7) % 13;
+            return next + 1;
+        }
+
+        @Override
+        public float readFloat() {
+            return readInt() * 0.25f;
+        }
+
+        @Override
+        public void print(String text) {
+        }
+
+        @Override
+        public void print(int value) {
+        }
+
+        @Override
+        public void print(float value) {
+        }
+    };
+
+    private ExecutionBenchmark() {
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        // pequeno o bastante para o método gerado ficar abaixo do HugeMethodLimit do JIT
+        String[][] programs = {
+                {"programa", Corpus.PROGRAMA},
+                {"numeric", Corpus.numeric(150, 11)},
+        };
+        for (String[] entry : programs) {
+            char[] source = entry[1].toCharArray();
+            TokenBuffer tokens = new TokenBuffer();
+            tokens.lex(source, source.length);
+            Ast ast = new Ast();
+            new Parser(tokens, ast).parse();
+
+            RegisterProgram registers = new RegisterCompiler(tokens, ast).compile();
+            McProgram walker = new AstWalker(tokens, ast);
+            McProgram bytecode = CodeGenerator.load(CodeGenerator.DEFAULT_CLASS_NAME,
+                    new CodeGenerator(tokens, ast).generate(CodeGenerator.DEFAULT_CLASS_NAME));
+            report.add(harness.measure("execution." + entry[0] + ".ast_walker", "runs", () -> {
+                walker.run(IO);
+                return 1;
+            }));
+            report.add(harness.measure("execution." + entry[0] + ".registers", "runs", () -> {
+                registers.run(IO);
+                return 1;
+            }));
+            report.add(harness.measure("execution." + entry[0] + ".bytecode", "runs", () -> {
+                bytecode.run(IO);
+                return 1;
+            }));
+        }
+    }
+}
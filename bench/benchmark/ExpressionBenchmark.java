@@ -0,0 +1,51 @@
+package benchmark;
+
+import lexical.TokenBuffer;
+import syntactic.Ast;
+import syntactic.Parser;
+import util.TokenType;
+
+// Só o Parser (os tokens são analisados uma vez) sobre programas feitos quase
+// só de expressões e condições; a unidade conta operadores reconhecidos.
+public class ExpressionBenchmark {
+    private ExpressionBenchmark() {
+    }
+
+    public static long parse(TokenBuffer tokens, Ast ast, long operators) throws Exception {
+        tokens.rewind();
+        if (ast != null) {
+            ast.clear();
+        }
+        new Parser(tokens, ast).parse();
+        return operators;
+    }
+
+    private static long operators(TokenBuffer tokens) {
+        long count = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            TokenType type = tokens.type(i);
+            if (type == TokenType.MATH_OPERATOR || type == TokenType.REL_OPERATOR
+                    || type == TokenType.AND_OPERATOR || type == TokenType.OR_OPERATOR) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        String[][] corpora = {
+                {"long_expressions", Corpus.longExpressions(200, 60, 7)},
+                {"long_conditions", Corpus.longConditions(200, 12, 7)},
+                {"numeric", Corpus.numeric(1_000, 5)},
+        };
+        for (String[] entry : corpora) {
+            char[] source = entry[1].toCharArray();
+            TokenBuffer tokens = new TokenBuffer();
+            tokens.lex(source, source.length);
+            long operators = operators(tokens);
+            Ast ast = new Ast();
+            report.add(harness.measure("expressions." + entry[0], "operators", () -> parse(tokens, null, operators)));
+            report.add(harness.measure("expressions." + entry[0] + ".ast", "operators", () -> parse(tokens, ast, operators)));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+// Laço de medição simples: aquecimento, iterações cronometradas e bytes
+// alocados pela thread (mesmo dado que o gc.alloc.rate do perfilador de GC).
+public class Harness {
+    public interface Workload {
+        // devolve quantas unidades (tokens, programas...) foram processadas
+        long run() throws Exception;
+    }
+
+    public static class Result {
+        public final String name;
+        public final String unit;
+        public final double opsPerSecond;
+        public final double unitsPerSecond;
+        public final double bytesPerOp;
+        public final double allocMbPerSecond;
+
+        Result(String name, String unit, double opsPerSecond, double unitsPerSecond,
+               double bytesPerOp, double allocMbPerSecond) {
+            this.name = name;
+            this.unit = unit;
+            this.opsPerSecond = opsPerSecond;
+            this.unitsPerSecond = unitsPerSecond;
+            this.bytesPerOp = bytesPerOp;
+            this.allocMbPerSecond = allocMbPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-40s %14.1f ops/s %16.1f %s/s %14.1f B/op %10.1f MB/s",
+                    name, opsPerSecond, unitsPerSecond, unit, bytesPerOp, allocMbPerSecond);
+        }
+
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%.3f,%.3f,%.3f,%.3f",
+                    name, unit, opsPerSecond, unitsPerSecond, bytesPerOp, allocMbPerSecond);
+        }
+    }
+
+    public static final String CSV_HEADER = "benchmark,unit,ops_per_s,units_per_s,bytes_per_op,alloc_mb_per_s";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private long sink;
+
+    public Harness(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public Result measure(String name, String unit, Workload workload) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(workload);
+        }
+        long ops = 0;
+        long units = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long[] counts = iteration(workload);
+            bytes += THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            ops += counts[0];
+            units += counts[1];
+            nanos += counts[2];
+        }
+        double seconds = nanos / 1e9;
+        return new Result(name, unit, ops / seconds, units / seconds, (double) bytes / ops,
+                bytes / seconds / (1024 * 1024));
+    }
+
+    public long sink() {
+        return sink;
+    }
+
+    private long[] iteration(Workload workload) throws Exception {
+        long ops = 0;
+        long units = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            units += workload.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        sink += units;
+        return new long[] {ops, units, elapsed};
+    }
+}
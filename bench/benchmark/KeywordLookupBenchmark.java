@@ -0,0 +1,72 @@
+package benchmark;
+
+import java.util.Random;
+
+import util.ReservedWords;
+import util.TokenType;
+
+// Compara a busca antiga (String + containsKey/get no mapa) com o
+// ReservedWords.lookup direto sobre o buffer, numa entrada cheia de identificadores.
+public class KeywordLookupBenchmark {
+    private static final String[] NAMES = {
+            "x", "y", "z", "temp", "contador", "i", "valor_total", "if", "then",
+            "int", "float", "print", "input", "main", "var", "E", "OU", "soma",
+    };
+
+    private final char[] source;
+    private final int[] offsets;
+    private final int[] lengths;
+
+    public KeywordLookupBenchmark(int identifiers, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        offsets = new int[identifiers];
+        lengths = new int[identifiers];
+        for (int i = 0; i < identifiers; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            offsets[i] = sb.length();
+            lengths[i] = name.length();
+            sb.append(name).append(' ');
+        }
+        source = sb.toString().toCharArray();
+    }
+
+    public int mapLookup() {
+        int keywords = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            String content = new String(source, offsets[i], lengths[i]);
+            if (ReservedWords.WORDS.containsKey(content)) {
+                TokenType type = ReservedWords.WORDS.get(content);
+                keywords += type.ordinal();
+            }
+        }
+        return keywords;
+    }
+
+    public int sliceLookup() {
+        int keywords = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            TokenType type = ReservedWords.lookup(source, offsets[i], lengths[i]);
+            if (type != null) {
+                keywords += type.ordinal();
+            }
+        }
+        return keywords;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        KeywordLookupBenchmark benchmark = new KeywordLookupBenchmark(100_000, 42);
+        if (benchmark.mapLookup() != benchmark.sliceLookup()) {
+            throw new IllegalStateException("as duas buscas discordam");
+        }
+        int identifiers = benchmark.offsets.length;
+        report.add(harness.measure("keywords.map", "identifiers", () -> {
+            benchmark.mapLookup();
+            return identifiers;
+        }));
+        report.add(harness.measure("keywords.slice", "identifiers", () -> {
+            benchmark.sliceLookup();
+            return identifiers;
+        }));
+    }
+}
@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import lexical.InternPool;
+import lexical.Scanner;
+import lexical.SourceReader;
+import lexical.Token;
+
+// Tokens de programas lidos por janela (cada Token guarda seu texto), com e
+// sem o InternPool: alocação e vazão pelo Harness, e o heap que continua
+// ocupado com várias cópias do mesmo programa mantidas vivas, como num
+// servidor que guarda os programas compilados. O heap retido é medido numa
+// JVM separada para cada caso.
+public class MemoryBenchmark {
+    private static final int RESIDENT_PROGRAMS = 100;
+    private static final int ATTEMPTS = 5;
+    // diferença entre duas leituras seguidas considerada ruído
+    private static final long STABLE_BYTES = 16 * 1024;
+
+    private MemoryBenchmark() {
+    }
+
+    public static List<Token> tokens(byte[] source, InternPool pool) throws Exception {
+        Scanner scanner = new Scanner(SourceReader.fromChannel(Channels.newChannel(new ByteArrayInputStream(source))));
+        scanner.setInternPool(pool);
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        while ((token = scanner.nextToken()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        for (String[] entry : Benchmarks.corpora()) {
+            byte[] source = entry[1].getBytes(StandardCharsets.UTF_8);
+            InternPool pool = new InternPool(InternPool.DEFAULT_CAPACITY);
+            report.add(harness.measure("memory." + entry[0] + ".strings", "tokens",
+                    () -> tokens(source, null).size()));
+            report.add(harness.measure("memory." + entry[0] + ".interned", "tokens",
+                    () -> tokens(source, pool).size()));
+            long plain = forked(entry[0], false);
+            long interned = forked(entry[0], true);
+            System.out.println(String.format(Locale.ROOT, "%-40s %14.1f KB/programa sem pool, %10.1f KB/programa com pool (redução de %.0f%%)",
+                    "memory." + entry[0] + ".retained", plain / 1024.0, interned / 1024.0, 100.0 * (plain - interned) / plain));
+        }
+    }
+
+    // java -cp out:out-bench benchmark.MemoryBenchmark <corpus> <pool|plain>: imprime o heap retido por programa
+    public static void main(String[] args) throws Exception {
+        for (String[] entry : Benchmarks.corpora()) {
+            if (entry[0].equals(args[0])) {
+                System.out.println(retained(entry[1].getBytes(StandardCharsets.UTF_8), args[1].equals("pool")));
+                return;
+            }
+        }
+        throw new IllegalArgumentException("corpus desconhecido: " + args[0]);
+    }
+
+    /*
+     * Cada medida roda numa JVM nova, com o coletor serial: na mesma JVM o
+     * heap ocupado depende do que os grupos anteriores deixaram para trás e
+     * de quando o coletor decide devolver memória, e as diferenças chegavam
+     * a sair negativas.
+     */
+    private static long forked(String corpus, boolean intern) throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-XX:+UseSerialGC", "-Xmx1g",
+                "-cp", System.getProperty("java.class.path"),
+                MemoryBenchmark.class.getName(), corpus, intern ? "pool" : "plain")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("medição de memória falhou para " + corpus);
+        }
+        return Long.parseLong(output);
+    }
+
+    // heap ocupado por programa residente; com pool, o próprio pool entra na conta
+    private static long retained(byte[] source, boolean intern) throws Exception {
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            long before = usedAfterGc();
+            InternPool pool = intern ? new InternPool(InternPool.DEFAULT_CAPACITY) : null;
+            List<List<Token>> programs = new ArrayList<>();
+            for (int i = 0; i < RESIDENT_PROGRAMS; i++) {
+                programs.add(tokens(source, pool));
+            }
+            long after = usedAfterGc();
+            if (programs.size() != RESIDENT_PROGRAMS) {
+                throw new IllegalStateException();
+            }
+            // uma diferença negativa quer dizer que o coletor ainda liberou algo de antes: mede de novo
+            if (after > before) {
+                return (after - before) / RESIDENT_PROGRAMS;
+            }
+        }
+        throw new IllegalStateException("heap instável: nenhuma medida positiva em " + ATTEMPTS + " tentativas");
+    }
+
+    // coleta até duas leituras seguidas concordarem
+    private static long usedAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long previous = -1;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(20);
+            long used = memory.getHeapMemoryUsage().getUsed();
+            if (previous >= 0 && Math.abs(used - previous) <= STABLE_BYTES) {
+                return used;
+            }
+            previous = used;
+        }
+        throw new IllegalStateException("heap instável: as leituras depois do System.gc() não convergem");
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import lexical.PipelinedTokenSource;
+import lexical.Scanner;
+import lexical.SourceReader;
+import lexical.TokenBuffer;
+import syntactic.Ast;
+import syntactic.Parser;
+
+public class ParserBenchmark {
+    private ParserBenchmark() {
+    }
+
+    public static long parse(char[] source) throws Exception {
+        new Parser(new Scanner(SourceReader.of(source, source.length))).parse();
+        return 1;
+    }
+
+    public static long parseBuffered(char[] source, TokenBuffer buffer) throws Exception {
+        buffer.lex(source, source.length);
+        new Parser(buffer).parse();
+        return 1;
+    }
+
+    public static long parseWithAst(char[] source, TokenBuffer buffer, Ast ast) throws Exception {
+        buffer.lex(source, source.length);
+        ast.clear();
+        new Parser(buffer, ast).parse();
+        return 1;
+    }
+
+    public static long parsePipelined(char[] source) throws Exception {
+        try (PipelinedTokenSource tokens = new PipelinedTokenSource(SourceReader.of(source, source.length))) {
+            new Parser(tokens).parse();
+        }
+        return 1;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        TokenBuffer buffer = new TokenBuffer();
+        Ast ast = new Ast();
+        for (String[] entry : Benchmarks.corpora()) {
+            char[] source = entry[1].toCharArray();
+            report.add(harness.measure("parser." + entry[0], "programs", () -> parse(source)));
+            report.add(harness.measure("parser." + entry[0] + ".buffer", "programs", () -> parseBuffered(source, buffer)));
+            report.add(harness.measure("parser." + entry[0] + ".ast", "programs", () -> parseWithAst(source, buffer, ast)));
+            report.add(harness.measure("parser." + entry[0] + ".pipelined", "programs", () -> parsePipelined(source)));
+        }
+        // aninhamento que estouraria a pilha de um Parser recursivo com o -Xss padrão
+        String[][] deep = {
+                {"deep_ifs", Corpus.nestedIfs(50_000)},
+                {"deep_parens", Corpus.nestedParens(50_000)},
+        };
+        for (String[] entry : deep) {
+            char[] source = entry[1].toCharArray();
+            report.add(harness.measure("parser." + entry[0] + ".buffer", "programs", () -> parseBuffered(source, buffer)));
+            report.add(harness.measure("parser." + entry[0] + ".ast", "programs", () -> parseWithAst(source, buffer, ast)));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Report {
+    private final List<Harness.Result> results = new ArrayList<>();
+
+    public void add(Harness.Result result) {
+        results.add(result);
+        System.out.println(result);
+    }
+
+    public void writeCsv(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(Harness.CSV_HEADER);
+        for (Harness.Result result : results) {
+            lines.add(result.toCsv());
+        }
+        Files.write(path, lines, StandardCharsets.UTF_8);
+    }
+}
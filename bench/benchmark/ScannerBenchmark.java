@@ -0,0 +1,29 @@
+package benchmark;
+
+import lexical.Scanner;
+import lexical.ScannerEngine;
+import lexical.SourceReader;
+
+public class ScannerBenchmark {
+    private ScannerBenchmark() {
+    }
+
+    public static long tokens(char[] source, ScannerEngine engine) throws Exception {
+        Scanner scanner = new Scanner(SourceReader.of(source, source.length), engine);
+        long count = 0;
+        while (scanner.nextToken() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    public static void run(Harness harness, Report report) throws Exception {
+        for (String[] entry : Benchmarks.corpora()) {
+            char[] source = entry[1].toCharArray();
+            for (ScannerEngine engine : ScannerEngine.values()) {
+                report.add(harness.measure("scanner." + entry[0] + "." + engine.name().toLowerCase(),
+                        "tokens", () -> tokens(source, engine)));
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Emissor mínimo de arquivos .class. Gera a versão 49 (Java 5), que ainda é
+ * verificada por inferência de tipos, então não precisamos calcular
+ * StackMapTable para os desvios.
+ */
+final class ClassWriter {
+	static final int VERSION = 49;
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> constants = new HashMap<>();
+	private int poolCount = 1;
+
+	private final int thisClass;
+	private final int superClass;
+	private final int[] interfaces;
+	private final List<byte[]> methods = new ArrayList<>();
+	private final int codeName;
+
+	ClassWriter(String name, String superName, String... interfaceNames) {
+		thisClass = classRef(name);
+		superClass = classRef(superName);
+		interfaces = new int[interfaceNames.length];
+		for (int i = 0; i < interfaceNames.length; i++) {
+			interfaces[i] = classRef(interfaceNames[i]);
+		}
+		codeName = utf8("Code");
+	}
+
+	int utf8(String value) {
+		Integer index = constants.get("U" + value);
+		if (index != null) {
+			return index;
+		}
+		try {
+			pool.writeByte(CONSTANT_UTF8);
+			pool.writeUTF(value);
+		} catch (IOException e) {
+			// writeUTF recusa textos com mais de 65535 bytes
+			throw new IllegalStateException("Constante grande demais para o arquivo .class", e);
+		}
+		return add("U" + value);
+	}
+
+	int classRef(String internalName) {
+		return reference("C", CONSTANT_CLASS, utf8(internalName), -1, internalName);
+	}
+
+	int string(String value) {
+		return reference("S", CONSTANT_STRING, utf8(value), -1, value);
+	}
+
+	int integer(int value) {
+		return number("I", CONSTANT_INTEGER, value);
+	}
+
+	int floating(float value) {
+		return number("F", CONSTANT_FLOAT, Float.floatToRawIntBits(value));
+	}
+
+	int methodRef(String owner, String name, String descriptor) {
+		return member(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	int interfaceMethodRef(String owner, String name, String descriptor) {
+		return member(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+	}
+
+	void method(int access, String name, String descriptor, Code code) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(code.length() + 32);
+		DataOutputStream out = new DataOutputStream(bytes);
+		int nameIndex = utf8(name);
+		int descriptorIndex = utf8(descriptor);
+		try {
+			out.writeShort(access);
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+			out.writeShort(1);
+			out.writeShort(codeName);
+			out.writeInt(12 + code.length());
+			out.writeShort(code.maxStack());
+			out.writeShort(code.maxLocals());
+			out.writeInt(code.length());
+			code.writeTo(out);
+			out.writeShort(0); // tabela de exceções
+			out.writeShort(0); // atributos do Code
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		methods.add(bytes.toByteArray());
+	}
+
+	byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(poolBytes.size() + 256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolCount);
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+			for (int index : interfaces) {
+				out.writeShort(index);
+			}
+			out.writeShort(0); // campos
+			out.writeShort(methods.size());
+			for (byte[] method : methods) {
+				out.write(method);
+			}
+			out.writeShort(0); // atributos da classe
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private int member(int tag, String owner, String name, String descriptor) {
+		int nameAndType = reference("N", CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor), name + ' ' + descriptor);
+		return reference(tag == CONSTANT_METHODREF ? "M" : "A", tag, classRef(owner), nameAndType,
+				owner + '.' + name + descriptor);
+	}
+
+	private int reference(String kind, int tag, int first, int second, String key) {
+		Integer index = constants.get(kind + key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			pool.writeByte(tag);
+			pool.writeShort(first);
+			if (second >= 0) {
+				pool.writeShort(second);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return add(kind + key);
+	}
+
+	private int number(String kind, int tag, int bits) {
+		String key = kind + bits;
+		Integer index = constants.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			pool.writeByte(tag);
+			pool.writeInt(bits);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return add(key);
+	}
+
+	private int add(String key) {
+		if (poolCount == 0xFFFF) {
+			throw new IllegalStateException("Tabela de constantes cheia");
+		}
+		constants.put(key, poolCount);
+		return poolCount++;
+	}
+}
@@ -0,0 +1,214 @@
+package codegen;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Corpo de um método: bytes das instruções, profundidade da pilha de
+ * operandos e rótulos de desvio resolvidos no final.
+ */
+final class Code {
+	static final int ICONST_0 = 0x03;
+	static final int FCONST_0 = 0x0b;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC = 0x12;
+	static final int LDC_W = 0x13;
+	static final int ILOAD = 0x15;
+	static final int FLOAD = 0x17;
+	static final int ALOAD = 0x19;
+	static final int ISTORE = 0x36;
+	static final int FSTORE = 0x38;
+	static final int IADD = 0x60;
+	static final int FADD = 0x62;
+	static final int ISUB = 0x64;
+	static final int FSUB = 0x66;
+	static final int IMUL = 0x68;
+	static final int FMUL = 0x6a;
+	static final int IDIV = 0x6c;
+	static final int FDIV = 0x6e;
+	static final int I2F = 0x86;
+	static final int FCMPL = 0x95;
+	static final int FCMPG = 0x96;
+	static final int IFEQ = 0x99;
+	static final int IFNE = 0x9a;
+	static final int IFLT = 0x9b;
+	static final int IFGE = 0x9c;
+	static final int IFGT = 0x9d;
+	static final int IFLE = 0x9e;
+	static final int IF_ICMPEQ = 0x9f;
+	static final int IF_ICMPNE = 0xa0;
+	static final int IF_ICMPLT = 0xa1;
+	static final int IF_ICMPGE = 0xa2;
+	static final int IF_ICMPGT = 0xa3;
+	static final int IF_ICMPLE = 0xa4;
+	static final int GOTO = 0xa7;
+	static final int RETURN = 0xb1;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKEINTERFACE = 0xb9;
+	static final int WIDE = 0xc4;
+
+	private static final int MAX_CODE = 65535;
+	private static final int MAX_STACK = 65535;
+
+	private byte[] code = new byte[256];
+	private int length;
+	private int stack;
+	private int maxStack;
+	private int maxLocals;
+
+	private int[] labels = new int[16];
+	private int labelCount;
+	private int[] jumps = new int[16]; // pares (posição do desvio, rótulo)
+	private int jumpCount;
+
+	Code(int maxLocals) {
+		this.maxLocals = maxLocals;
+	}
+
+	int length() {
+		return length;
+	}
+
+	int maxStack() {
+		return maxStack;
+	}
+
+	int maxLocals() {
+		return maxLocals;
+	}
+
+	// instrução sem operandos; delta é o efeito na pilha de operandos
+	void op(int opcode, int delta) {
+		u1(opcode);
+		adjust(delta);
+	}
+
+	void intConstant(ClassWriter cw, int value) {
+		if (value >= -1 && value <= 5) {
+			op(ICONST_0 + value, 1);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			u1(BIPUSH);
+			u1(value);
+			adjust(1);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			u1(SIPUSH);
+			u2(value);
+			adjust(1);
+		} else {
+			constant(cw.integer(value));
+		}
+	}
+
+	void floatConstant(ClassWriter cw, float value) {
+		if (Float.floatToRawIntBits(value) == 0 || value == 1.0f || value == 2.0f) {
+			op(FCONST_0 + (int) value, 1);
+		} else {
+			constant(cw.floating(value));
+		}
+	}
+
+	void constant(int index) {
+		if (index <= 0xFF) {
+			u1(LDC);
+			u1(index);
+		} else {
+			u1(LDC_W);
+			u2(index);
+		}
+		adjust(1);
+	}
+
+	void local(int opcode, int slot) {
+		if (slot > 0xFF) {
+			u1(WIDE);
+			u1(opcode);
+			u2(slot);
+		} else {
+			u1(opcode);
+			u1(slot);
+		}
+		adjust(opcode == ISTORE || opcode == FSTORE ? -1 : 1);
+	}
+
+	void invokeSpecial(int method, int delta) {
+		u1(INVOKESPECIAL);
+		u2(method);
+		adjust(delta);
+	}
+
+	void invokeInterface(int method, int argumentSlots, int delta) {
+		u1(INVOKEINTERFACE);
+		u2(method);
+		u1(argumentSlots + 1);
+		u1(0);
+		adjust(delta);
+	}
+
+	int newLabel() {
+		if (labelCount == labels.length) {
+			labels = Arrays.copyOf(labels, labelCount * 2);
+		}
+		labels[labelCount] = -1;
+		return labelCount++;
+	}
+
+	void mark(int label) {
+		labels[label] = length;
+	}
+
+	// desvio condicional ou goto; os ifs consomem um ou dois operandos
+	void jump(int opcode, int label) {
+		if (jumpCount + 2 > jumps.length) {
+			jumps = Arrays.copyOf(jumps, jumps.length * 2);
+		}
+		jumps[jumpCount++] = length;
+		jumps[jumpCount++] = label;
+		u1(opcode);
+		u2(0);
+		if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE) {
+			adjust(-2);
+		} else if (opcode != GOTO) {
+			adjust(-1);
+		}
+	}
+
+	void writeTo(DataOutputStream out) throws IOException {
+		if (length > MAX_CODE) {
+			throw new IllegalStateException("Programa excede o limite de " + MAX_CODE + " bytes de código de um método");
+		}
+		if (maxStack > MAX_STACK) {
+			throw new IllegalStateException("Expressão aninhada demais para a pilha de operandos de um método");
+		}
+		for (int i = 0; i < jumpCount; i += 2) {
+			int at = jumps[i];
+			int offset = labels[jumps[i + 1]] - at;
+			if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+				throw new IllegalStateException("Desvio longo demais para o código gerado");
+			}
+			code[at + 1] = (byte) (offset >> 8);
+			code[at + 2] = (byte) offset;
+		}
+		out.write(code, 0, length);
+	}
+
+	private void adjust(int delta) {
+		stack += delta;
+		if (stack > maxStack) {
+			maxStack = stack;
+		}
+	}
+
+	private void u1(int value) {
+		if (length == code.length) {
+			code = Arrays.copyOf(code, length * 2);
+		}
+		code[length++] = (byte) value;
+	}
+
+	private void u2(int value) {
+		u1(value >> 8);
+		u1(value);
+	}
+}
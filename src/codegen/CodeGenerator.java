@@ -0,0 +1,425 @@
+package codegen;
+
+import static codegen.Code.*;
+
+import java.util.Arrays;
+
+import exceptions.SemanticException;
+import lexical.TokenBuffer;
+import optimizer.ConstantFolder;
+import runtime.McProgram;
+import semantic.ProgramInfo;
+import semantic.SymbolTable;
+import syntactic.Ast;
+import syntactic.Parser;
+import util.TokenType;
+
+/*
+ * Gera bytecode JVM a partir da Ast de um programa aceito pelo Parser. O
+ * programa vira o método run(ProgramIO) de uma classe que implementa
+ * McProgram; cada variável declarada ocupa um local primitivo (int ou float)
+ * e input/print chamam o ProgramIO recebido.
+ *
+ * Expressões com int e float são promovidas para float (ver ProgramInfo). Nos
+ * operadores relacionais, = e == são igualdade e ! e != são diferença, como o
+ * Scanner os reconhece.
+ *
+ * Ifs aninhados, subcondições e operandos à direita ficam em pilhas de int
+ * em vez de chamadas recursivas, como no Parser. O limite de profundidade
+ * passa a ser o do próprio class file: 64 KB de código e 65535 posições na
+ * pilha de operandos por método.
+ */
+public class CodeGenerator {
+	public static final String DEFAULT_CLASS_NAME = "Programa";
+
+	private static final String PROGRAM = "runtime/McProgram";
+	private static final String IO = "runtime/ProgramIO";
+
+	private static final int INT = ProgramInfo.INT;
+	private static final int FLOAT = ProgramInfo.FLOAT;
+
+	// relações na ordem dos opcodes IFEQ..IFLE; r ^ 1 é a negação de r
+	private static final int EQ = 0;
+	private static final int NE = 1;
+	private static final int LT = 2;
+	private static final int GE = 3;
+	private static final int GT = 4;
+	private static final int LE = 5;
+
+	private static final int FIRST_VARIABLE_SLOT = 2; // 0 = this, 1 = io
+
+	// campos de um nível de expressão em levels
+	private static final int LEVEL = 3;
+	private static final int BASE = 0;
+	private static final int WANT = 1;
+	private static final int PENDING = 2;
+
+	private final TokenBuffer tokens;
+	private final Ast ast;
+	private final SymbolTable symbols;
+
+	private ProgramInfo info;
+
+	private ClassWriter cw;
+	private Code code;
+
+	// espinha esquerda das cadeias de operadores binários
+	private int[] spine = new int[16];
+	private int spineTop;
+
+	// ifs abertos: o bloco, o próximo comando e o rótulo do fim (-1 no bloco do programa)
+	private int[] blocks = new int[3 * 16];
+	private int blockTop;
+	// subcondições pendentes: o nó (-1 para só marcar o rótulo), when e o rótulo
+	private int[] branches = new int[3 * 16];
+	private int branchTop;
+	// expressões à direita em andamento, LEVEL ints cada
+	private int[] levels = new int[LEVEL * 16];
+	private int levelTop;
+
+	public CodeGenerator(TokenBuffer tokens, Ast ast) {
+		this(tokens, ast, null);
+	}
+
+	// com a SymbolTable preenchida pelo Parser, os nomes não são verificados de novo
+	public CodeGenerator(TokenBuffer tokens, Ast ast, SymbolTable symbols) {
+		this.tokens = tokens;
+		this.ast = ast;
+		this.symbols = symbols;
+	}
+
+	public static McProgram compile(char[] source, int length) throws Exception {
+		TokenBuffer tokens = new TokenBuffer();
+		tokens.lex(source, length);
+		Ast ast = new Ast();
+		SymbolTable symbols = new SymbolTable(tokens);
+		new Parser(tokens, ast, symbols).parse();
+		ast = new ConstantFolder(tokens, ast, ProgramInfo.of(tokens, ast, symbols)).fold();
+		byte[] classFile = new CodeGenerator(tokens, ast, symbols).generate(DEFAULT_CLASS_NAME);
+		return load(DEFAULT_CLASS_NAME, classFile);
+	}
+
+	// cada programa tem seu próprio ClassLoader, para que possa ser descarregado
+	public static McProgram load(String className, byte[] classFile) {
+		ProgramLoader loader = new ProgramLoader(McProgram.class.getClassLoader());
+		try {
+			return (McProgram) loader.define(className, classFile).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Falha ao carregar a classe gerada", e);
+		}
+	}
+
+	public byte[] generate(String className) throws SemanticException {
+		info = symbols != null ? ProgramInfo.of(tokens, ast, symbols) : ProgramInfo.check(tokens, ast);
+
+		cw = new ClassWriter(className.replace('.', '/'), "java/lang/Object", PROGRAM);
+
+		code = new Code(1);
+		code.local(ALOAD, 0);
+		code.invokeSpecial(cw.methodRef("java/lang/Object", "<init>", "()V"), -1);
+		code.op(RETURN, 0);
+		cw.method(ClassWriter.ACC_PUBLIC, "<init>", "()V", code);
+
+		code = new Code(FIRST_VARIABLE_SLOT + info.variableCount());
+		for (int i = 0; i < info.variableCount(); i++) {
+			int slot = FIRST_VARIABLE_SLOT + i;
+			if (info.variableType(i) == FLOAT) {
+				code.op(FCONST_0, 1);
+				code.local(FSTORE, slot);
+			} else {
+				code.op(ICONST_0, 1);
+				code.local(ISTORE, slot);
+			}
+		}
+		int program = ast.root();
+		block(ast.child(program, ast.childCount(program) - 1));
+		code.op(RETURN, 0);
+		cw.method(ClassWriter.ACC_PUBLIC, "run", "(L" + IO + ";)V", code);
+
+		byte[] classFile = cw.toByteArray();
+		cw = null;
+		code = null;
+		info = null;
+		return classFile;
+	}
+
+	private int slot(int node) {
+		return FIRST_VARIABLE_SLOT + info.variable(node);
+	}
+
+	private void block(int node) {
+		int bottom = blockTop;
+		openBlock(node, -1);
+		while (blockTop > bottom) {
+			int b = blockTop - 3;
+			int block = blocks[b];
+			int next = blocks[b + 1];
+			if (next < ast.childCount(block)) {
+				blocks[b + 1]++;
+				command(ast.child(block, next));
+			} else {
+				if (blocks[b + 2] >= 0) {
+					code.mark(blocks[b + 2]);
+				}
+				blockTop = b;
+			}
+		}
+	}
+
+	private void openBlock(int node, int end) {
+		if (blockTop + 3 > blocks.length) {
+			blocks = Arrays.copyOf(blocks, blocks.length * 2);
+		}
+		blocks[blockTop++] = node;
+		blocks[blockTop++] = 0;
+		blocks[blockTop++] = end;
+	}
+
+	private void command(int node) {
+		switch (ast.kind(node)) {
+			case Ast.INPUT: {
+				int slot = slot(node);
+				boolean isFloat = info.variableType(info.variable(node)) == FLOAT;
+				code.local(ALOAD, 1);
+				code.invokeInterface(cw.interfaceMethodRef(IO, isFloat ? "readFloat" : "readInt", isFloat ? "()F" : "()I"), 0, 0);
+				code.local(isFloat ? FSTORE : ISTORE, slot);
+				break;
+			}
+			case Ast.PRINT: {
+				int value = ast.child(node, 0);
+				code.local(ALOAD, 1);
+				String descriptor;
+				if (ast.kind(value) == Ast.STRING) {
+					String text = tokens.text(ast.token(value));
+					code.constant(cw.string(text.substring(1, text.length() - 1)));
+					descriptor = "(Ljava/lang/String;)V";
+				} else {
+					expression(value, info.type(value));
+					descriptor = info.type(value) == FLOAT ? "(F)V" : "(I)V";
+				}
+				code.invokeInterface(cw.interfaceMethodRef(IO, "print", descriptor), 1, -2);
+				break;
+			}
+			case Ast.ASSIGNMENT: {
+				int slot = slot(node);
+				int type = info.variableType(info.variable(node));
+				expression(ast.child(node, 0), type);
+				code.local(type == FLOAT ? FSTORE : ISTORE, slot);
+				break;
+			}
+			case Ast.IF: {
+				// o corpo é gerado por block(), que marca end ao terminá-lo
+				int end = code.newLabel();
+				branch(ast.child(node, 0), false, end);
+				openBlock(ast.child(node, 1), end);
+				break;
+			}
+			default:
+				throw new IllegalStateException("Comando inesperado: " + Ast.kindName(ast.kind(node)));
+		}
+	}
+
+	// desvia para label quando a condição tiver o valor when
+	private void branch(int node, boolean when, int label) {
+		int bottom = branchTop;
+		pushBranch(node, when, label);
+		while (branchTop > bottom) {
+			branchTop -= 3;
+			node = branches[branchTop];
+			when = branches[branchTop + 1] != 0;
+			label = branches[branchTop + 2];
+			if (node < 0) {
+				code.mark(label);
+			} else {
+				condition(node, when, label);
+			}
+		}
+	}
+
+	private void pushBranch(int node, boolean when, int label) {
+		if (branchTop + 3 > branches.length) {
+			branches = Arrays.copyOf(branches, branches.length * 2);
+		}
+		branches[branchTop++] = node;
+		branches[branchTop++] = when ? 1 : 0;
+		branches[branchTop++] = label;
+	}
+
+	// um nó da condição; os lados de E/OU vão para a pilha, o esquerdo por cima
+	private void condition(int node, boolean when, int label) {
+		switch (ast.kind(node)) {
+			case Ast.LOGICAL: {
+				boolean and = tokens.type(ast.token(node)) == TokenType.AND_OPERATOR;
+				int left = ast.child(node, 0);
+				int right = ast.child(node, 1);
+				if (and != when) {
+					// E desviando no falso, OU desviando no verdadeiro: basta um dos lados
+					pushBranch(right, when, label);
+					pushBranch(left, when, label);
+				} else {
+					int skip = code.newLabel();
+					pushBranch(-1, false, skip);
+					pushBranch(right, when, label);
+					pushBranch(left, !when, skip);
+				}
+				break;
+			}
+			case Ast.RELATIONAL: {
+				int left = ast.child(node, 0);
+				int right = ast.child(node, 1);
+				int type = Math.max(info.type(left), info.type(right));
+				int relation = relation(tokens.text(ast.token(node)));
+				expression(left, type);
+				expression(right, type);
+				int jump = when ? relation : relation ^ 1;
+				if (type == FLOAT) {
+					// com NaN a comparação deve resultar falsa
+					code.op(relation == LT || relation == LE ? FCMPG : FCMPL, -1);
+					code.jump(IFEQ + jump, label);
+				} else {
+					code.jump(IF_ICMPEQ + jump, label);
+				}
+				break;
+			}
+			default:
+				// expressão sem operador relacional: verdadeira quando diferente de zero
+				expression(node, info.type(node));
+				if (info.type(node) == FLOAT) {
+					code.op(FCONST_0, 1);
+					code.op(FCMPL, -1);
+				}
+				code.jump(when ? IFNE : IFEQ, label);
+				break;
+		}
+	}
+
+	private static int relation(String op) {
+		switch (op) {
+			case "=":
+			case "==":
+				return EQ;
+			case "!":
+			case "!=":
+				return NE;
+			case "<":
+				return LT;
+			case "<=":
+				return LE;
+			case ">":
+				return GT;
+			default:
+				return GE;
+		}
+	}
+
+	/*
+	 * a + b + c ... forma uma espinha à esquerda, percorrida pela pilha spine.
+	 * O operando à direita de cada operador abre um nível novo em levels no
+	 * lugar de uma chamada recursiva; o nível de baixo guarda em PENDING o
+	 * operador que espera por esse valor no topo da pilha de operandos.
+	 */
+	private void expression(int node, int want) {
+		int bottom = levelTop;
+		openLevel(node, want);
+		while (true) {
+			int l = levelTop - LEVEL;
+			int base = levels[l + BASE];
+			int binary = levels[l + PENDING];
+			if (binary >= 0) {
+				levels[l + PENDING] = -1;
+				int type = info.type(binary);
+				arithmetic(tokens.text(ast.token(binary)), type);
+				int parentType = spineTop > base ? info.type(spine[spineTop - 1]) : levels[l + WANT];
+				if (type == INT && parentType == FLOAT) {
+					code.op(I2F, 0);
+				}
+			}
+			if (spineTop > base) {
+				binary = spine[--spineTop];
+				levels[l + PENDING] = binary;
+				openLevel(ast.child(binary, 1), info.type(binary));
+				continue;
+			}
+			levelTop = l;
+			if (levelTop == bottom) {
+				return;
+			}
+		}
+	}
+
+	// empilha a espinha de node e gera o operando mais à esquerda
+	private void openLevel(int node, int want) {
+		if (levelTop + LEVEL > levels.length) {
+			levels = Arrays.copyOf(levels, levels.length * 2);
+		}
+		int l = levelTop;
+		levelTop += LEVEL;
+		levels[l + BASE] = spineTop;
+		levels[l + WANT] = want;
+		levels[l + PENDING] = -1;
+		int leftmost = node;
+		while (ast.kind(leftmost) == Ast.BINARY) {
+			if (spineTop == spine.length) {
+				spine = Arrays.copyOf(spine, spineTop * 2);
+			}
+			spine[spineTop++] = leftmost;
+			leftmost = ast.child(leftmost, 0);
+		}
+		operand(leftmost, spineTop > levels[l + BASE] ? info.type(spine[spineTop - 1]) : want);
+	}
+
+	private void operand(int node, int want) {
+		switch (ast.kind(node)) {
+			case Ast.IDENTIFIER:
+				code.local(info.type(node) == FLOAT ? FLOAD : ILOAD, slot(node));
+				break;
+			case Ast.INTEGER:
+			case Ast.INT_CONSTANT:
+				if (want == FLOAT) {
+					code.floatConstant(cw, info.intValue(node));
+					return;
+				}
+				code.intConstant(cw, info.intValue(node));
+				break;
+			case Ast.FLOAT:
+			case Ast.FLOAT_CONSTANT:
+				code.floatConstant(cw, info.floatValue(node));
+				break;
+			default:
+				throw new IllegalStateException("Expressão inesperada: " + Ast.kindName(ast.kind(node)));
+		}
+		if (info.type(node) == INT && want == FLOAT) {
+			code.op(I2F, 0);
+		}
+	}
+
+	private void arithmetic(String op, int type) {
+		int opcode;
+		switch (op) {
+			case "+":
+				opcode = IADD;
+				break;
+			case "-":
+				opcode = ISUB;
+				break;
+			case "*":
+				opcode = IMUL;
+				break;
+			default:
+				opcode = IDIV;
+				break;
+		}
+		// as variantes float vêm logo depois das int (IADD, LADD, FADD)
+		code.op(type == FLOAT ? opcode + 2 : opcode, -1);
+	}
+
+	private static final class ProgramLoader extends ClassLoader {
+		ProgramLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
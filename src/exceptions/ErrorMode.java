@@ -0,0 +1,24 @@
+package exceptions;
+
+/*
+ * Define se LexicalError, SyntacticException e SemanticException capturam a
+ * pilha de chamadas. Esses erros descrevem o programa compilado, não o
+ * compilador, e em corpora com muitos arquivos inválidos preencher a pilha
+ * é o custo dominante; o modo de CLI desliga a captura. O padrão pode ser
+ * trocado com -Dmini_compiler.stackTraces=false.
+ */
+public final class ErrorMode {
+	private static volatile boolean captureStackTraces =
+			Boolean.parseBoolean(System.getProperty("mini_compiler.stackTraces", "true"));
+
+	private ErrorMode() {
+	}
+
+	public static boolean captureStackTraces() {
+		return captureStackTraces;
+	}
+
+	public static void setCaptureStackTraces(boolean capture) {
+		captureStackTraces = capture;
+	}
+}
@@ -5,11 +5,23 @@ public class LexicalError extends RuntimeException {
     private int column;
 
     public LexicalError(String message, int line, int column) {
-        super(message);
+        super(message, null, true, ErrorMode.captureStackTraces());
         this.line = line;
         this.column = column;
     }
 
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public String getDescription() {
+        return super.getMessage();
+    }
+
     @Override
     public String getMessage(){
         return super.getMessage() + " (linha: " + line + ", coluna: " + column + ")";
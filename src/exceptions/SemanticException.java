@@ -0,0 +1,31 @@
+package exceptions;
+
+public class SemanticException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	private int line;
+	private int column;
+
+	public SemanticException(String message, int line, int column) {
+		super(message, null, true, ErrorMode.captureStackTraces());
+		this.line = line;
+		this.column = column;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public String getDescription() {
+		return super.getMessage();
+	}
+
+	@Override
+	public String getMessage() {
+		return super.getMessage() + " (linha: " + line + ", coluna: " + column + ")";
+	}
+}
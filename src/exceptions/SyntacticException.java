@@ -1,9 +1,66 @@
 package exceptions;
 
+import java.util.function.UnaryOperator;
+
 public class SyntacticException extends Exception{
+	// texto e posição do token do erro, lidos só quando pedidos
+	public interface Location {
+		String text();
+
+		int line();
+
+		int column();
+	}
+
+	private int line;
+	private int column;
+	private String message;
+	private transient UnaryOperator<String> format;
+	private transient Location location;
 	
 	public SyntacticException(String msg) {
-		super(msg);
+		super(msg, null, true, ErrorMode.captureStackTraces());
+	}
+
+	public SyntacticException(String msg, int line, int column) {
+		this(msg);
+		this.line = line;
+		this.column = column;
+	}
+
+	// a mensagem (format aplicado ao texto do token) e a posição só são calculadas quando pedidas
+	public SyntacticException(UnaryOperator<String> format, Location location) {
+		super(null, null, true, ErrorMode.captureStackTraces());
+		this.format = format;
+		this.location = location;
+		this.line = -1;
+	}
+
+	@Override
+	public String getMessage() {
+		if (format != null) {
+			message = format.apply(location.text());
+			format = null;
+		}
+		return message != null ? message : super.getMessage();
+	}
+
+	// posição do token em que o erro foi encontrado (0 se desconhecida)
+	public int getLine() {
+		position();
+		return line;
+	}
+
+	public int getColumn() {
+		position();
+		return column;
+	}
+
+	private void position() {
+		if (line < 0) {
+			line = location.line();
+			column = location.column();
+		}
 	}
 
 }
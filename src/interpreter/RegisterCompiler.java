@@ -0,0 +1,451 @@
+package interpreter;
+
+import static interpreter.RegisterProgram.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import exceptions.SemanticException;
+import lexical.TokenBuffer;
+import optimizer.ConstantFolder;
+import semantic.ProgramInfo;
+import semantic.SymbolTable;
+import syntactic.Ast;
+import syntactic.Parser;
+import util.TokenType;
+
+/*
+ * Traduz a Ast para RegisterProgram, para ambientes em que não é possível
+ * definir classes em tempo de execução. Os nomes já foram resolvidos pelo
+ * ProgramInfo: a variável de índice v é o registrador v do banco do seu tipo.
+ * Temporários são alocados em pilha acima das variáveis e liberados assim
+ * que o comando que os usou termina.
+ *
+ * Como o Parser, a tradução não usa recursão: ifs abertos, subcondições
+ * pendentes e operandos à direita ficam em pilhas de int, então qualquer
+ * programa que o Parser aceita pode ser traduzido sem aumentar o -Xss.
+ */
+public class RegisterCompiler {
+	private static final int INT = ProgramInfo.INT;
+	private static final int FLOAT = ProgramInfo.FLOAT;
+
+	// campos de um nível de expressão em levels
+	private static final int LEVEL = 7;
+	private static final int BASE = 0;
+	private static final int WANT = 1;
+	private static final int DST = 2;
+	private static final int ACCUMULATOR = 3;
+	private static final int PENDING = 4;
+	private static final int INT_MARK = 5;
+	private static final int FLOAT_MARK = 6;
+
+	private final TokenBuffer tokens;
+	private final Ast ast;
+	private final SymbolTable symbols;
+	private ProgramInfo info;
+
+	private int[] code = new int[256];
+	private int length;
+	private final List<String> strings = new ArrayList<>();
+
+	private int intTop;
+	private int floatTop;
+	private int intRegisters;
+	private int floatRegisters;
+
+	private int[] labels = new int[16];
+	private int labelCount;
+	private int[] jumps = new int[16]; // posições cujo operando c aponta para um rótulo
+	private int jumpCount;
+
+	private int[] spine = new int[16];
+	private int spineTop;
+
+	// ifs abertos: o bloco, o próximo comando e o rótulo do fim (-1 no bloco do programa)
+	private int[] blocks = new int[3 * 16];
+	private int blockTop;
+	// subcondições pendentes: o nó (-1 para só marcar o rótulo), when e o rótulo
+	private int[] branches = new int[3 * 16];
+	private int branchTop;
+	// expressões à direita em andamento, LEVEL ints cada
+	private int[] levels = new int[LEVEL * 16];
+	private int levelTop;
+
+	public RegisterCompiler(TokenBuffer tokens, Ast ast) {
+		this(tokens, ast, null);
+	}
+
+	// com a SymbolTable preenchida pelo Parser, os nomes não são verificados de novo
+	public RegisterCompiler(TokenBuffer tokens, Ast ast, SymbolTable symbols) {
+		this.tokens = tokens;
+		this.ast = ast;
+		this.symbols = symbols;
+	}
+
+	public static RegisterProgram compile(char[] source, int length) throws Exception {
+		TokenBuffer tokens = new TokenBuffer();
+		tokens.lex(source, length);
+		Ast ast = new Ast();
+		SymbolTable symbols = new SymbolTable(tokens);
+		new Parser(tokens, ast, symbols).parse();
+		ast = new ConstantFolder(tokens, ast, ProgramInfo.of(tokens, ast, symbols)).fold();
+		return new RegisterCompiler(tokens, ast, symbols).compile();
+	}
+
+	public RegisterProgram compile() throws SemanticException {
+		info = symbols != null ? ProgramInfo.of(tokens, ast, symbols) : ProgramInfo.check(tokens, ast);
+		intTop = floatTop = intRegisters = floatRegisters = info.variableCount();
+
+		int program = ast.root();
+		block(ast.child(program, ast.childCount(program) - 1));
+		emit(HALT, 0, 0, 0);
+
+		for (int i = 0; i < jumpCount; i++) {
+			code[jumps[i] + 3] = labels[code[jumps[i] + 3]];
+		}
+		return new RegisterProgram(Arrays.copyOf(code, length), strings.toArray(new String[0]),
+				Math.max(intRegisters, 1), Math.max(floatRegisters, 1));
+	}
+
+	private void block(int node) {
+		int bottom = blockTop;
+		openBlock(node, -1);
+		while (blockTop > bottom) {
+			int b = blockTop - 3;
+			int block = blocks[b];
+			int next = blocks[b + 1];
+			if (next < ast.childCount(block)) {
+				blocks[b + 1]++;
+				command(ast.child(block, next));
+			} else {
+				if (blocks[b + 2] >= 0) {
+					labels[blocks[b + 2]] = length;
+				}
+				blockTop = b;
+			}
+		}
+	}
+
+	private void openBlock(int node, int end) {
+		if (blockTop + 3 > blocks.length) {
+			blocks = Arrays.copyOf(blocks, blocks.length * 2);
+		}
+		blocks[blockTop++] = node;
+		blocks[blockTop++] = 0;
+		blocks[blockTop++] = end;
+	}
+
+	private void command(int node) {
+		int intMark = intTop;
+		int floatMark = floatTop;
+		switch (ast.kind(node)) {
+			case Ast.INPUT: {
+				int variable = info.variable(node);
+				emit(info.variableType(variable) == FLOAT ? READF : READI, variable, 0, 0);
+				break;
+			}
+			case Ast.PRINT: {
+				int value = ast.child(node, 0);
+				if (ast.kind(value) == Ast.STRING) {
+					String text = tokens.text(ast.token(value));
+					strings.add(text.substring(1, text.length() - 1));
+					emit(PRINTS, strings.size() - 1, 0, 0);
+				} else {
+					int type = info.type(value);
+					emit(type == FLOAT ? PRINTF : PRINTI, expression(value, type, -1), 0, 0);
+				}
+				break;
+			}
+			case Ast.ASSIGNMENT: {
+				int variable = info.variable(node);
+				int type = info.variableType(variable);
+				int result = expression(ast.child(node, 0), type, variable);
+				if (result != variable) {
+					emit(type == FLOAT ? FMOV : IMOV, variable, result, 0);
+				}
+				break;
+			}
+			case Ast.IF: {
+				// o corpo é traduzido por block(), que marca end ao terminá-lo
+				int end = newLabel();
+				branch(ast.child(node, 0), false, end);
+				openBlock(ast.child(node, 1), end);
+				break;
+			}
+			default:
+				throw new IllegalStateException("Comando inesperado: " + Ast.kindName(ast.kind(node)));
+		}
+		intTop = intMark;
+		floatTop = floatMark;
+	}
+
+	// desvia para label quando a condição tiver o valor when
+	private void branch(int node, boolean when, int label) {
+		int intMark = intTop;
+		int floatMark = floatTop;
+		int bottom = branchTop;
+		pushBranch(node, when, label);
+		while (branchTop > bottom) {
+			branchTop -= 3;
+			node = branches[branchTop];
+			when = branches[branchTop + 1] != 0;
+			label = branches[branchTop + 2];
+			if (node < 0) {
+				labels[label] = length;
+			} else {
+				condition(node, when, label);
+				intTop = intMark;
+				floatTop = floatMark;
+			}
+		}
+	}
+
+	private void pushBranch(int node, boolean when, int label) {
+		if (branchTop + 3 > branches.length) {
+			branches = Arrays.copyOf(branches, branches.length * 2);
+		}
+		branches[branchTop++] = node;
+		branches[branchTop++] = when ? 1 : 0;
+		branches[branchTop++] = label;
+	}
+
+	// um nó da condição; os lados de E/OU vão para a pilha, o esquerdo por cima
+	private void condition(int node, boolean when, int label) {
+		switch (ast.kind(node)) {
+			case Ast.LOGICAL: {
+				boolean and = tokens.type(ast.token(node)) == TokenType.AND_OPERATOR;
+				if (and != when) {
+					pushBranch(ast.child(node, 1), when, label);
+					pushBranch(ast.child(node, 0), when, label);
+				} else {
+					int skip = newLabel();
+					pushBranch(-1, false, skip);
+					pushBranch(ast.child(node, 1), when, label);
+					pushBranch(ast.child(node, 0), !when, skip);
+				}
+				break;
+			}
+			case Ast.RELATIONAL: {
+				int left = ast.child(node, 0);
+				int right = ast.child(node, 1);
+				int type = Math.max(info.type(left), info.type(right));
+				int relation = relation(tokens.text(ast.token(node)));
+				int a = expression(left, type, -1);
+				int b = expression(right, type, -1);
+				int opcode;
+				if (type == FLOAT) {
+					opcode = (when ? FJEQ : FJNEQ) + relation;
+				} else {
+					// com inteiros a negação de uma relação é a relação oposta
+					opcode = IJEQ + (when ? relation : relation ^ 1);
+				}
+				jump(opcode, a, b, label);
+				break;
+			}
+			default: {
+				int type = info.type(node);
+				int value = expression(node, type, -1);
+				if (type == FLOAT) {
+					jump(when ? FJNZ : FJZ, value, 0, label);
+				} else {
+					jump(when ? IJNZ : IJZ, value, 0, label);
+				}
+				break;
+			}
+		}
+	}
+
+	// mesma ordem de RegisterProgram.IJEQ: EQ, NE, LT, GE, GT, LE
+	private static int relation(String op) {
+		switch (op) {
+			case "=":
+			case "==":
+				return 0;
+			case "!":
+			case "!=":
+				return 1;
+			case "<":
+				return 2;
+			case ">=":
+				return 3;
+			case ">":
+				return 4;
+			default:
+				return 5;
+		}
+	}
+
+	/*
+	 * Calcula a expressão no tipo want e devolve o registrador com o
+	 * resultado: o próprio registrador da variável, um temporário ou dst,
+	 * quando informado (dst >= 0), se for possível escrever direto nele.
+	 *
+	 * a + b + c ... forma uma espinha à esquerda, percorrida pela pilha spine.
+	 * Um operando à direita que também é BINARY abre um nível novo em levels
+	 * no lugar de uma chamada recursiva; o nível de baixo guarda em PENDING o
+	 * operador que espera por esse resultado.
+	 */
+	private int expression(int node, int want, int dst) {
+		if (ast.kind(node) != Ast.BINARY) {
+			return operand(node, want, dst);
+		}
+		int bottom = levelTop;
+		openLevel(node, want, dst);
+		int right = -1;
+		while (true) {
+			int l = levelTop - LEVEL;
+			int base = levels[l + BASE];
+			int binary = levels[l + PENDING];
+			if (binary >= 0) {
+				// o operando à direita de binary está em right
+				levels[l + PENDING] = -1;
+				intTop = levels[l + INT_MARK];
+				floatTop = levels[l + FLOAT_MARK];
+				int type = info.type(binary);
+				int accumulator = levels[l + ACCUMULATOR];
+				int parentType = spineTop > base ? info.type(spine[spineTop - 1]) : levels[l + WANT];
+				int target;
+				if (spineTop == base && levels[l + DST] >= 0 && type == levels[l + WANT]) {
+					target = levels[l + DST];
+				} else if (accumulator >= info.variableCount()) {
+					target = accumulator;
+				} else {
+					target = temporary(type);
+				}
+				emit(arithmetic(tokens.text(ast.token(binary)), type), target, accumulator, right);
+				accumulator = target;
+				if (type == INT && parentType == FLOAT) {
+					int converted = temporary(FLOAT);
+					emit(I2F, converted, accumulator, 0);
+					accumulator = converted;
+				}
+				levels[l + ACCUMULATOR] = accumulator;
+			}
+			if (spineTop > base) {
+				binary = spine[--spineTop];
+				levels[l + PENDING] = binary;
+				levels[l + INT_MARK] = intTop;
+				levels[l + FLOAT_MARK] = floatTop;
+				int operand = ast.child(binary, 1);
+				if (ast.kind(operand) == Ast.BINARY) {
+					openLevel(operand, info.type(binary), -1);
+				} else {
+					right = operand(operand, info.type(binary), -1);
+				}
+				continue;
+			}
+			right = levels[l + ACCUMULATOR];
+			levelTop = l;
+			if (levelTop == bottom) {
+				return right;
+			}
+		}
+	}
+
+	// empilha a espinha de node e calcula o operando mais à esquerda
+	private void openLevel(int node, int want, int dst) {
+		if (levelTop + LEVEL > levels.length) {
+			levels = Arrays.copyOf(levels, levels.length * 2);
+		}
+		int l = levelTop;
+		levelTop += LEVEL;
+		levels[l + BASE] = spineTop;
+		levels[l + WANT] = want;
+		levels[l + DST] = dst;
+		levels[l + PENDING] = -1;
+		int leftmost = node;
+		while (ast.kind(leftmost) == Ast.BINARY) {
+			if (spineTop == spine.length) {
+				spine = Arrays.copyOf(spine, spineTop * 2);
+			}
+			spine[spineTop++] = leftmost;
+			leftmost = ast.child(leftmost, 0);
+		}
+		levels[l + ACCUMULATOR] = operand(leftmost, info.type(spine[spineTop - 1]), -1);
+	}
+
+	private int operand(int node, int want, int dst) {
+		int target = dst;
+		switch (ast.kind(node)) {
+			case Ast.IDENTIFIER: {
+				int variable = info.variable(node);
+				if (info.type(node) == want) {
+					return variable;
+				}
+				target = target >= 0 ? target : temporary(FLOAT);
+				emit(I2F, target, variable, 0);
+				return target;
+			}
+			case Ast.INTEGER:
+			case Ast.INT_CONSTANT:
+				target = target >= 0 ? target : temporary(want);
+				if (want == FLOAT) {
+					emit(FCONST, target, Float.floatToRawIntBits(info.intValue(node)), 0);
+				} else {
+					emit(ICONST, target, info.intValue(node), 0);
+				}
+				return target;
+			case Ast.FLOAT:
+			case Ast.FLOAT_CONSTANT:
+				target = target >= 0 ? target : temporary(FLOAT);
+				emit(FCONST, target, Float.floatToRawIntBits(info.floatValue(node)), 0);
+				return target;
+			default:
+				throw new IllegalStateException("Expressão inesperada: " + Ast.kindName(ast.kind(node)));
+		}
+	}
+
+	private static int arithmetic(String op, int type) {
+		int opcode;
+		switch (op) {
+			case "+":
+				opcode = IADD;
+				break;
+			case "-":
+				opcode = ISUB;
+				break;
+			case "*":
+				opcode = IMUL;
+				break;
+			default:
+				opcode = IDIV;
+				break;
+		}
+		return type == FLOAT ? opcode + (FADD - IADD) : opcode;
+	}
+
+	private int temporary(int type) {
+		if (type == FLOAT) {
+			floatRegisters = Math.max(floatRegisters, floatTop + 1);
+			return floatTop++;
+		}
+		intRegisters = Math.max(intRegisters, intTop + 1);
+		return intTop++;
+	}
+
+	private int newLabel() {
+		if (labelCount == labels.length) {
+			labels = Arrays.copyOf(labels, labelCount * 2);
+		}
+		return labelCount++;
+	}
+
+	private void jump(int opcode, int a, int b, int label) {
+		if (jumpCount == jumps.length) {
+			jumps = Arrays.copyOf(jumps, jumpCount * 2);
+		}
+		jumps[jumpCount++] = length;
+		emit(opcode, a, b, label);
+	}
+
+	private void emit(int opcode, int a, int b, int c) {
+		if (length + WIDTH > code.length) {
+			code = Arrays.copyOf(code, code.length * 2);
+		}
+		code[length++] = opcode;
+		code[length++] = a;
+		code[length++] = b;
+		code[length++] = c;
+	}
+}
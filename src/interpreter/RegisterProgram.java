@@ -0,0 +1,203 @@
+package interpreter;
+
+import runtime.McProgram;
+import runtime.ProgramIO;
+
+/*
+ * Programa traduzido para instruções de registradores. Cada instrução ocupa
+ * quatro posições de code: opcode e três operandos. Há dois bancos de
+ * registradores, int e float; as variáveis da seção var ocupam os primeiros
+ * registradores e os temporários das expressões vêm depois delas.
+ */
+public final class RegisterProgram implements McProgram {
+	static final int WIDTH = 4;
+
+	static final int HALT = 0;
+	static final int ICONST = 1; // a <- b
+	static final int FCONST = 2; // a <- float(bits b)
+	static final int IMOV = 3;
+	static final int FMOV = 4;
+	static final int I2F = 5; // f[a] <- i[b]
+	static final int IADD = 6; // a <- b op c
+	static final int ISUB = 7;
+	static final int IMUL = 8;
+	static final int IDIV = 9;
+	static final int FADD = 10;
+	static final int FSUB = 11;
+	static final int FMUL = 12;
+	static final int FDIV = 13;
+	static final int JMP = 14; // pc <- c
+	// desvios para c quando a relação entre a e b vale, na ordem EQ, NE, LT, GE, GT, LE
+	static final int IJEQ = 15;
+	static final int FJEQ = 21;
+	// desvios para c quando a relação entre a e b NÃO vale (difere da relação oposta com NaN)
+	static final int FJNEQ = 27;
+	static final int IJNZ = 33; // desvia para c se a != 0
+	static final int IJZ = 34;
+	static final int FJNZ = 35;
+	static final int FJZ = 36;
+	static final int READI = 37;
+	static final int READF = 38;
+	static final int PRINTI = 39;
+	static final int PRINTF = 40;
+	static final int PRINTS = 41; // strings[a]
+
+	private final int[] code;
+	private final String[] strings;
+	private final int intRegisters;
+	private final int floatRegisters;
+
+	RegisterProgram(int[] code, String[] strings, int intRegisters, int floatRegisters) {
+		this.code = code;
+		this.strings = strings;
+		this.intRegisters = intRegisters;
+		this.floatRegisters = floatRegisters;
+	}
+
+	public int size() {
+		return code.length / WIDTH;
+	}
+
+	@Override
+	public void run(ProgramIO io) {
+		int[] code = this.code;
+		int[] i = new int[intRegisters];
+		float[] f = new float[floatRegisters];
+		int pc = 0;
+		while (true) {
+			int a = code[pc + 1];
+			int b = code[pc + 2];
+			int c = code[pc + 3];
+			switch (code[pc]) {
+				case HALT:
+					return;
+				case ICONST:
+					i[a] = b;
+					break;
+				case FCONST:
+					f[a] = Float.intBitsToFloat(b);
+					break;
+				case IMOV:
+					i[a] = i[b];
+					break;
+				case FMOV:
+					f[a] = f[b];
+					break;
+				case I2F:
+					f[a] = i[b];
+					break;
+				case IADD:
+					i[a] = i[b] + i[c];
+					break;
+				case ISUB:
+					i[a] = i[b] - i[c];
+					break;
+				case IMUL:
+					i[a] = i[b] * i[c];
+					break;
+				case IDIV:
+					i[a] = i[b] / i[c];
+					break;
+				case FADD:
+					f[a] = f[b] + f[c];
+					break;
+				case FSUB:
+					f[a] = f[b] - f[c];
+					break;
+				case FMUL:
+					f[a] = f[b] * f[c];
+					break;
+				case FDIV:
+					f[a] = f[b] / f[c];
+					break;
+				case JMP:
+					pc = c;
+					continue;
+				case IJEQ:
+					if (i[a] == i[b]) { pc = c; continue; }
+					break;
+				case IJEQ + 1:
+					if (i[a] != i[b]) { pc = c; continue; }
+					break;
+				case IJEQ + 2:
+					if (i[a] < i[b]) { pc = c; continue; }
+					break;
+				case IJEQ + 3:
+					if (i[a] >= i[b]) { pc = c; continue; }
+					break;
+				case IJEQ + 4:
+					if (i[a] > i[b]) { pc = c; continue; }
+					break;
+				case IJEQ + 5:
+					if (i[a] <= i[b]) { pc = c; continue; }
+					break;
+				case FJEQ:
+					if (f[a] == f[b]) { pc = c; continue; }
+					break;
+				case FJEQ + 1:
+					if (f[a] != f[b]) { pc = c; continue; }
+					break;
+				case FJEQ + 2:
+					if (f[a] < f[b]) { pc = c; continue; }
+					break;
+				case FJEQ + 3:
+					if (f[a] >= f[b]) { pc = c; continue; }
+					break;
+				case FJEQ + 4:
+					if (f[a] > f[b]) { pc = c; continue; }
+					break;
+				case FJEQ + 5:
+					if (f[a] <= f[b]) { pc = c; continue; }
+					break;
+				case FJNEQ:
+					if (!(f[a] == f[b])) { pc = c; continue; }
+					break;
+				case FJNEQ + 1:
+					if (!(f[a] != f[b])) { pc = c; continue; }
+					break;
+				case FJNEQ + 2:
+					if (!(f[a] < f[b])) { pc = c; continue; }
+					break;
+				case FJNEQ + 3:
+					if (!(f[a] >= f[b])) { pc = c; continue; }
+					break;
+				case FJNEQ + 4:
+					if (!(f[a] > f[b])) { pc = c; continue; }
+					break;
+				case FJNEQ + 5:
+					if (!(f[a] <= f[b])) { pc = c; continue; }
+					break;
+				case IJNZ:
+					if (i[a] != 0) { pc = c; continue; }
+					break;
+				case IJZ:
+					if (i[a] == 0) { pc = c; continue; }
+					break;
+				case FJNZ:
+					if (f[a] != 0) { pc = c; continue; }
+					break;
+				case FJZ:
+					if (f[a] == 0) { pc = c; continue; }
+					break;
+				case READI:
+					i[a] = io.readInt();
+					break;
+				case READF:
+					f[a] = io.readFloat();
+					break;
+				case PRINTI:
+					io.print(i[a]);
+					break;
+				case PRINTF:
+					io.print(f[a]);
+					break;
+				case PRINTS:
+					io.print(strings[a]);
+					break;
+				default:
+					throw new IllegalStateException("Instrução inválida: " + code[pc]);
+			}
+			pc += WIDTH;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package lexical;
+
+import java.util.Arrays;
+
+import exceptions.LexicalError;
+import util.TokenType;
+
+/*
+ * Mantém o fluxo de tokens de um texto e, a cada edição, reanalisa só a região
+ * afetada.
+ *
+ * Toda chamada a Scanner.nextToken() começa no estado 0, então a "fronteira" i
+ * guarda só o que o Scanner precisa para retomar dali: a posição em que a
+ * chamada i começou (linha e coluna saem do LineIndex). A chamada i lê de
+ * boundaries[i] até boundaries[i + 1] inclusive (o caractere de lookahead
+ * desfeito pelo back()), e é por isso que uma edição em e invalida a primeira
+ * chamada com boundaries[i + 1] >= e. Comentários (estados 6, 8 e 9) ficam
+ * dentro da região de uma chamada, e cadeias (estado 11) são o próprio token,
+ * então um comentário ou cadeia que cruza a edição é sempre reanalisado por
+ * inteiro.
+ *
+ * Depois da edição, a análise segue até cair numa fronteira antiga além do
+ * trecho editado; dali em diante os tokens antigos são reaproveitados com a
+ * posição deslocada.
+ *
+ * O texto e os arrays de tokens têm folga e são editados no lugar: uma edição
+ * só passa o Scanner pelos tokens afetados, mas ainda desloca a cauda do texto
+ * e dos arrays (System.arraycopy) e soma o deslocamento às posições dos tokens
+ * reaproveitados. O custo é O(tamanho do arquivo) em cópias de memória, sem
+ * alocação, mais a reanálise proporcional à região editada.
+ */
+public class IncrementalLexer {
+	private char[] text;
+	private int length;
+
+	private int count;
+	private TokenType[] types;
+	private int[] starts;
+	private int[] lengths;
+	// count + 1 entradas: a última é a chamada que devolveu null ou lançou o erro
+	private int[] boundaries;
+	private LexicalError error;
+
+	public static class Change {
+		public final int start;
+		public final int removed;
+		public final int inserted;
+
+		Change(int start, int removed, int inserted) {
+			this.start = start;
+			this.removed = removed;
+			this.inserted = inserted;
+		}
+
+		@Override
+		public String toString() {
+			return "Change [start=" + start + ", removed=" + removed + ", inserted=" + inserted + "]";
+		}
+	}
+
+	public IncrementalLexer(String source) {
+		text = source.toCharArray();
+		length = text.length;
+		types = new TokenType[0];
+		starts = new int[0];
+		lengths = new int[0];
+		boundaries = new int[] {0};
+		relex(0, Integer.MAX_VALUE, 0);
+	}
+
+	// o texto só tem length chars válidos; o resto é folga para as edições
+	public String getText() {
+		return new String(text, 0, length);
+	}
+
+	public int getTokenCount() {
+		return count;
+	}
+
+	public TokenType getType(int index) {
+		return types[index];
+	}
+
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	public int getLength(int index) {
+		return lengths[index];
+	}
+
+	// com o texto copiado: o buffer é reaproveitado pelas próximas edições
+	public Token getToken(int index) {
+		return new Token(types[index], new String(text, starts[index], lengths[index]), starts[index]);
+	}
+
+	// erro léxico que encerrou a análise, ou null se ela chegou ao fim do texto
+	public LexicalError getError() {
+		return error;
+	}
+
+	public Change edit(int offset, int removedLength, String insertedText) {
+		if (offset < 0 || removedLength < 0 || offset + removedLength > length) {
+			throw new IndexOutOfBoundsException("edição fora do texto: " + offset + "+" + removedLength);
+		}
+		int inserted = insertedText.length();
+		int edited = length - removedLength + inserted;
+		if (edited > text.length) {
+			text = Arrays.copyOf(text, Math.max(edited, text.length * 2));
+		}
+		System.arraycopy(text, offset + removedLength, text, offset + inserted, length - offset - removedLength);
+		insertedText.getChars(0, inserted, text, offset);
+		length = edited;
+
+		// primeira chamada cujo trecho lido (com lookahead) alcança a edição
+		int low = 1;
+		int high = count + 1;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (boundaries[middle] < offset) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return relex(low - 1, offset + inserted, inserted - removedLength);
+	}
+
+	private Change relex(int restart, int editEnd, int delta) {
+		int oldCount = count;
+		Scanner scanner = new Scanner(SourceReader.of(text, length));
+		scanner.restart(boundaries[restart]);
+
+		Builder fresh = new Builder();
+		LexicalError failure = null;
+		int resync = -1;
+		while (true) {
+			int boundary = scanner.position();
+			fresh.boundary(boundary);
+			if (boundary >= editEnd) {
+				int old = Arrays.binarySearch(boundaries, restart + 1, oldCount + 1, boundary - delta);
+				if (old > restart) {
+					resync = old;
+					break;
+				}
+			}
+			Token token;
+			try {
+				token = scanner.nextToken();
+			} catch (LexicalError e) {
+				failure = e;
+				break;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			if (token == null) {
+				break;
+			}
+			fresh.token(token.getType(), token.getOffset(), token.getLength());
+		}
+
+		int reused = resync < 0 ? 0 : oldCount - resync;
+		int at = restart + fresh.count;
+		int total = at + reused;
+		if (total + 1 > boundaries.length) {
+			int capacity = Math.max(total + 1, boundaries.length * 2);
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			boundaries = Arrays.copyOf(boundaries, capacity);
+		}
+
+		// a cauda reaproveitada vai para depois dos tokens novos, e só então eles são gravados
+		if (reused > 0) {
+			System.arraycopy(types, resync, types, at, reused);
+			System.arraycopy(starts, resync, starts, at, reused);
+			System.arraycopy(lengths, resync, lengths, at, reused);
+			// a fronteira de ressincronização em si já vem da análise nova
+			System.arraycopy(boundaries, resync + 1, boundaries, at + 1, reused);
+			for (int i = at; i < total; i++) {
+				starts[i] += delta;
+				boundaries[i + 1] += delta;
+			}
+		}
+		System.arraycopy(fresh.types, 0, types, restart, fresh.count);
+		System.arraycopy(fresh.starts, 0, starts, restart, fresh.count);
+		System.arraycopy(fresh.lengths, 0, lengths, restart, fresh.count);
+		System.arraycopy(fresh.boundaries, 0, boundaries, restart, fresh.count + 1);
+
+		if (resync >= 0 && error != null) {
+			// refaz só a última chamada para obter o erro na posição nova
+			scanner.restart(boundaries[total]);
+			failure = lastCall(scanner);
+		}
+
+		count = total;
+		error = failure;
+		return new Change(restart, oldCount - restart - reused, fresh.count);
+	}
+
+	private static LexicalError lastCall(Scanner scanner) {
+		try {
+			scanner.nextToken();
+			return null;
+		} catch (LexicalError e) {
+			return e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static class Builder {
+		int count;
+		TokenType[] types = new TokenType[16];
+		int[] starts = new int[16];
+		int[] lengths = new int[16];
+		int boundaryCount;
+		int[] boundaries = new int[17];
+
+		void token(TokenType type, int start, int length) {
+			if (count == types.length) {
+				types = Arrays.copyOf(types, count * 2);
+				starts = Arrays.copyOf(starts, count * 2);
+				lengths = Arrays.copyOf(lengths, count * 2);
+			}
+			types[count] = type;
+			starts[count] = start;
+			lengths[count] = length;
+			count++;
+		}
+
+		void boundary(int position) {
+			if (boundaryCount == boundaries.length) {
+				boundaries = Arrays.copyOf(boundaries, boundaryCount * 2);
+			}
+			boundaries[boundaryCount] = position;
+			boundaryCount++;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package lexical;
+
+import util.TokenType;
+
+/*
+ * Pool de Strings para o texto de tokens que se repetem de um programa para
+ * outro (identificadores, números e cadeias), consultado direto pelo trecho
+ * de char[], sem criar a String só para procurar. Um mesmo pool pode ser
+ * usado por todas as compilações de um lote ou do servidor.
+ *
+ * É uma tabela de tamanho fixo com mapeamento direto: cada texto cai numa
+ * única posição, e um texto novo substitui o que estava lá. O pool nunca passa
+ * da capacidade e os textos usados com frequência tendem a continuar nele.
+ * Não há lock: String é imutável, então uma thread vê na posição uma String
+ * inteira (a nova ou a anterior); no pior caso duas threads criam o mesmo
+ * texto e uma das cópias não fica no pool.
+ */
+public final class InternPool {
+	public static final int DEFAULT_CAPACITY = 1 << 14;
+	// textos maiores quase nunca se repetem e só ocupariam o pool
+	public static final int MAX_LENGTH = 64;
+
+	private static final InternPool SHARED = new InternPool(DEFAULT_CAPACITY);
+
+	private final String[] table;
+	private final int mask;
+
+	public InternPool(int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+		table = new String[size];
+		mask = size - 1;
+	}
+
+	public static InternPool shared() {
+		return SHARED;
+	}
+
+	public static boolean isInterned(TokenType type) {
+		return type == TokenType.IDENTIFIER || type == TokenType.NUMBER_INTEGER
+				|| type == TokenType.NUMBER_FLOAT || type == TokenType.STRING;
+	}
+
+	// texto de um token de fonte residente: pelo pool compartilhado quando o tipo se repete entre programas
+	public static String text(TokenType type, char[] chars, int offset, int length) {
+		return isInterned(type) ? SHARED.intern(chars, offset, length) : new String(chars, offset, length);
+	}
+
+	public String intern(char[] chars, int offset, int length) {
+		if (length > MAX_LENGTH) {
+			return new String(chars, offset, length);
+		}
+		// mesmo cálculo de String.hashCode(), que fica guardado na própria String
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars[offset + i];
+		}
+		int index = (hash ^ (hash >>> 16)) & mask;
+		String text = table[index];
+		if (text != null && text.length() == length && text.hashCode() == hash && matches(text, chars, offset)) {
+			return text;
+		}
+		text = new String(chars, offset, length);
+		table[index] = text;
+		return text;
+	}
+
+	private static boolean matches(String text, char[] chars, int offset) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,192 @@
+package lexical;
+
+import static lexical.LexicalErrorMessages.ERROR_INVALID_CHAR;
+import static lexical.LexicalErrorMessages.ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT;
+import static lexical.LexicalErrorMessages.ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT;
+import static lexical.LexicalErrorMessages.GENERIC_ERROR;
+import static util.InvalidChars.CHARS;
+
+import java.util.Arrays;
+
+import util.TokenType;
+
+/*
+ * Tabelas do autômato usado pelo ScannerEngine.TABLE. Os estados são os mesmos
+ * do switch em Scanner (0 a 13); cada entrada da tabela de transição codifica
+ * a ação em (entrada >>> 16), o argumento (tipo do token ou índice da mensagem
+ * de erro) em ((entrada >>> 8) & 0xFF) e o próximo estado em (entrada & 0xFF).
+ */
+final class LexerTables {
+    static final int STATES = 14;
+
+    // classes de caracteres
+    static final int OTHER = 0;
+    static final int LETTER = 1;
+    static final int DIGIT = 2;
+    static final int DOT = 3;
+    static final int LESS = 4;
+    static final int EQUALS = 5;
+    static final int REL_OTHER = 6;
+    static final int PLUS = 7;
+    static final int MINUS = 8;
+    static final int STAR = 9;
+    static final int SLASH = 10;
+    static final int HASH = 11;
+    static final int LEFT_PAREN = 12;
+    static final int RIGHT_PAREN = 13;
+    static final int LEFT_BRACE = 14;
+    static final int RIGHT_BRACE = 15;
+    static final int COLON = 16;
+    static final int SEMICOLON = 17;
+    static final int QUOTE = 18;
+    static final int INVALID = 19;
+    static final int BLANK = 20;
+    static final int NEWLINE = 21;
+    static final int CLASS_COUNT = 22;
+
+    // ações
+    static final int NEXT = 0;
+    static final int EMIT = 1;
+    static final int EMIT_BACK = 2;
+    static final int IDENTIFIER_BACK = 3;
+    static final int ERROR = 4;
+    static final int ERROR_BACK = 5;
+    static final int STRING_BODY = 6;
+
+    static final TokenType[] TYPES = TokenType.values();
+    static final String[] ERRORS = {
+            GENERIC_ERROR,
+            ERROR_INVALID_CHAR,
+            ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT,
+            ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT,
+    };
+
+    static final byte[] CLASSES;
+    static final int[][] TRANSITIONS = new int[STATES][CLASS_COUNT];
+
+    static {
+        int size = 256;
+        for (char c : CHARS) {
+            size = Math.max(size, c + 1);
+        }
+        CLASSES = new byte[size];
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = LETTER;
+            CLASSES[Character.toUpperCase(c)] = LETTER;
+        }
+        CLASSES['_'] = LETTER;
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+        }
+        CLASSES['.'] = DOT;
+        CLASSES['<'] = LESS;
+        CLASSES['='] = EQUALS;
+        CLASSES['>'] = REL_OTHER;
+        CLASSES['!'] = REL_OTHER;
+        CLASSES['+'] = PLUS;
+        CLASSES['-'] = MINUS;
+        CLASSES['*'] = STAR;
+        CLASSES['/'] = SLASH;
+        CLASSES['#'] = HASH;
+        CLASSES['('] = LEFT_PAREN;
+        CLASSES[')'] = RIGHT_PAREN;
+        CLASSES['{'] = LEFT_BRACE;
+        CLASSES['}'] = RIGHT_BRACE;
+        CLASSES[':'] = COLON;
+        CLASSES[';'] = SEMICOLON;
+        CLASSES['"'] = QUOTE;
+        CLASSES[' '] = BLANK;
+        CLASSES['\t'] = BLANK;
+        CLASSES['\n'] = NEWLINE;
+        CLASSES['\r'] = NEWLINE;
+        for (char c : CHARS) {
+            CLASSES[c] = INVALID;
+        }
+
+        // estado inicial
+        fill(0, entry(ERROR, 0, 0));
+        set(0, entry(NEXT, 0, 0), BLANK, NEWLINE);
+        set(0, entry(ERROR, 1, 0), INVALID);
+        set(0, entry(NEXT, 0, 1), LETTER);
+        set(0, entry(NEXT, 0, 12), LESS);
+        set(0, entry(NEXT, 0, 13), EQUALS, REL_OTHER);
+        set(0, entry(NEXT, 0, 3), DIGIT);
+        set(0, entry(NEXT, 0, 4), DOT);
+        set(0, entry(NEXT, 0, 6), HASH);
+        set(0, entry(NEXT, 0, 7), SLASH);
+        set(0, emit(TokenType.MATH_OPERATOR), PLUS, MINUS, STAR);
+        set(0, emit(TokenType.LEFT_PAREN), LEFT_PAREN);
+        set(0, emit(TokenType.RIGHT_PAREN), RIGHT_PAREN);
+        set(0, emit(TokenType.LEFT_BRACE), LEFT_BRACE);
+        set(0, emit(TokenType.RIGHT_BRACE), RIGHT_BRACE);
+        set(0, emit(TokenType.COLON), COLON);
+        set(0, emit(TokenType.SEMICOLON), SEMICOLON);
+        set(0, entry(NEXT, 0, 11), QUOTE);
+
+        // identificadores
+        fill(1, entry(IDENTIFIER_BACK, 0, 0));
+        set(1, entry(NEXT, 0, 1), LETTER, DIGIT);
+
+        // inteiros e floats
+        fill(3, emitBack(TokenType.NUMBER_INTEGER));
+        set(3, entry(NEXT, 0, 3), DIGIT);
+        set(3, entry(NEXT, 0, 4), DOT);
+        fill(4, entry(ERROR_BACK, 2, 0));
+        set(4, entry(NEXT, 0, 5), DIGIT);
+        fill(5, emitBack(TokenType.NUMBER_FLOAT));
+        set(5, entry(NEXT, 0, 5), DIGIT);
+        set(5, entry(ERROR, 3, 0), DOT);
+
+        // comentários
+        fill(6, entry(NEXT, 0, 6));
+        set(6, entry(NEXT, 0, 0), NEWLINE);
+        fill(7, emitBack(TokenType.MATH_OPERATOR));
+        set(7, entry(NEXT, 0, 8), STAR);
+        fill(8, entry(NEXT, 0, 8));
+        set(8, entry(NEXT, 0, 9), STAR);
+        fill(9, entry(NEXT, 0, 8));
+        set(9, entry(NEXT, 0, 0), SLASH);
+
+        // operadores relacionais e de atribuição
+        fill(10, emitBack(TokenType.ASSIGNMENT_OPERATOR));
+        set(10, emit(TokenType.REL_OPERATOR), LESS, EQUALS, REL_OTHER);
+        fill(12, emitBack(TokenType.REL_OPERATOR));
+        set(12, emit(TokenType.REL_OPERATOR), EQUALS);
+        set(12, emit(TokenType.ASSIGNMENT_OPERATOR), MINUS);
+        fill(13, emitBack(TokenType.REL_OPERATOR));
+        set(13, emit(TokenType.REL_OPERATOR), EQUALS);
+
+        // cadeias de caracteres
+        fill(11, entry(STRING_BODY, 0, 11));
+        set(11, emit(TokenType.STRING), QUOTE);
+    }
+
+    private LexerTables() {
+    }
+
+    static int classOf(char c) {
+        return c < CLASSES.length ? CLASSES[c] : OTHER;
+    }
+
+    private static int entry(int action, int argument, int next) {
+        return action << 16 | argument << 8 | next;
+    }
+
+    private static int emit(TokenType type) {
+        return entry(EMIT, type.ordinal(), 0);
+    }
+
+    private static int emitBack(TokenType type) {
+        return entry(EMIT_BACK, type.ordinal(), 0);
+    }
+
+    private static void fill(int state, int entry) {
+        Arrays.fill(TRANSITIONS[state], entry);
+    }
+
+    private static void set(int state, int entry, int... classes) {
+        for (int c : classes) {
+            TRANSITIONS[state][c] = entry;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package lexical;
+
+import java.util.Arrays;
+
+/*
+ * Início de cada linha do código-fonte, para obter linha e coluna de uma
+ * posição só quando alguém pede (um erro, uma ferramenta). O Scanner trabalha
+ * apenas com posições, então nenhum caractere paga pela contagem de linhas.
+ *
+ * '\n' e '\r' contam cada um como uma quebra, como o Scanner sempre contou
+ * (um "\r\n" ocupa duas linhas). Sobre um código-fonte residente o índice é
+ * montado sob demanda, em bloco, até a maior posição já consultada; com um
+ * SourceReader em janela, o Scanner entrega cada trecho antes de descartá-lo.
+ * Os métodos são sincronizados porque o PipelinedTokenSource consulta o índice
+ * numa thread e o alimenta em outra.
+ */
+public final class LineIndex {
+	private final char[] source;
+	private final int length;
+	// starts[k] é a posição logo após a k-ésima quebra; cresce só quando o índice é usado
+	private int[] starts = {0};
+	private int count = 1;
+	// quebras em posições menores que indexed já estão em starts
+	private int indexed;
+
+	public LineIndex(char[] source, int length) {
+		this.source = source;
+		this.length = length;
+	}
+
+	// alimentado pelo Scanner com add()
+	LineIndex() {
+		this(null, 0);
+	}
+
+	// chars[from, to) são as posições base + from até base + to; o que já foi indexado é ignorado
+	synchronized void add(char[] chars, int from, int to, int base) {
+		for (int i = Math.max(from, indexed - base); i < to; i++) {
+			char c = chars[i];
+			if (c == '\n' || c == '\r') {
+				if (count == starts.length) {
+					starts = Arrays.copyOf(starts, Math.max(count * 2, 64));
+				}
+				starts[count++] = base + i + 1;
+			}
+		}
+		indexed = Math.max(indexed, base + to);
+	}
+
+	// linha, a partir de 1, do caractere na posição offset
+	public synchronized int line(int offset) {
+		if (source != null && offset > indexed) {
+			add(source, indexed, Math.min(offset, length), 0);
+		}
+		int low = 0;
+		int high = count - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (starts[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low + 1;
+	}
+
+	// coluna, a partir de 1, do caractere na posição offset
+	public synchronized int column(int offset) {
+		int line = line(offset);
+		return offset - starts[line - 1] + 1;
+	}
+}
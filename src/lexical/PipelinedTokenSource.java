@@ -0,0 +1,216 @@
+package lexical;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import exceptions.LexicalError;
+import util.Operator;
+import util.TokenType;
+
+/*
+ * Analisa o código numa thread separada enquanto o Parser consome os tokens.
+ * O Scanner preenche lotes de tokens num anel de tamanho fixo com um único
+ * produtor e um único consumidor: cada lado só escreve o próprio contador
+ * (head para o produtor, tail para o consumidor), então não há lock, só
+ * publicação ordenada dos contadores.
+ *
+ * Um LexicalError vira o fim do último lote e só é lançado quando o Parser
+ * avança além do último token bom, na mesma ordem em que o Scanner o lançaria.
+ * O mesmo vale para um Error no produtor (falta de memória, estouro de pilha):
+ * o consumidor nunca fica esperando um lote que não vai chegar.
+ */
+public class PipelinedTokenSource implements TokenSource, AutoCloseable {
+	public static final int DEFAULT_BATCH_SIZE = 512;
+	public static final int DEFAULT_RING_SIZE = 8;
+
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final int SPINS = 128;
+
+	private final Batch[] ring;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final Thread producer;
+	private final char[] source;
+	private final LineIndex lines;
+	private volatile boolean closed;
+
+	// lado do consumidor
+	private Batch batch;
+	private int position = -1;
+	private int index = -1;
+
+	private static class Batch {
+		final byte[] types;
+		final byte[] operators;
+		// posições absolutas; numa fonte residente, também o índice em source
+		final int[] starts;
+		final int[] lengths;
+		final String[] texts;
+		int count;
+		boolean last;
+		// RuntimeException ou Error
+		Throwable failure;
+		// posição do fim da entrada, no último lote
+		int end;
+
+		Batch(int capacity, boolean resident) {
+			types = new byte[capacity];
+			operators = new byte[capacity];
+			starts = new int[capacity];
+			lengths = new int[capacity];
+			texts = resident ? null : new String[capacity];
+		}
+	}
+
+	public PipelinedTokenSource(SourceReader reader) {
+		this(reader, ScannerEngine.SWITCH, DEFAULT_BATCH_SIZE, DEFAULT_RING_SIZE);
+	}
+
+	public PipelinedTokenSource(SourceReader reader, ScannerEngine engine, int batchSize, int ringSize) {
+		if (Integer.bitCount(ringSize) != 1) {
+			throw new IllegalArgumentException("o tamanho do anel deve ser potência de 2: " + ringSize);
+		}
+		Scanner scanner = new Scanner(reader, engine);
+		source = reader.isResident() ? reader.chars : null;
+		lines = scanner.lines();
+		ring = new Batch[ringSize];
+		mask = ringSize - 1;
+		for (int i = 0; i < ringSize; i++) {
+			ring[i] = new Batch(batchSize, reader.isResident());
+		}
+		producer = new Thread(() -> produce(scanner), "mini_compiler-lexer");
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	private void produce(Scanner scanner) {
+		long sequence = 0;
+		boolean last = false;
+		while (!last) {
+			// espera uma posição livre no anel
+			int spins = 0;
+			while (sequence - tail.get() == ring.length) {
+				if (closed) {
+					return;
+				}
+				spins = idle(spins);
+			}
+			Batch b = ring[(int) sequence & mask];
+			b.count = 0;
+			b.failure = null;
+			try {
+				while (b.count < b.types.length) {
+					TokenType type = scanner.scan();
+					if (type == null) {
+						b.end = scanner.endOffset();
+						last = true;
+						break;
+					}
+					int i = b.count++;
+					b.types[i] = (byte) type.ordinal();
+					b.operators[i] = (byte) scanner.tokenOperator(type);
+					b.starts[i] = scanner.tokenOffset();
+					b.lengths[i] = scanner.tokenLength();
+					if (b.texts != null) {
+						b.texts[i] = scanner.tokenText(type);
+					}
+				}
+			} catch (Throwable e) {
+				b.failure = e;
+				last = true;
+			}
+			// numa janela, as quebras de linha lidas entram no índice antes de o lote ser publicado
+			scanner.lines();
+			b.last = last;
+			head.lazySet(++sequence);
+		}
+	}
+
+	private static int idle(int spins) {
+		if (spins < SPINS) {
+			Thread.onSpinWait();
+		} else {
+			LockSupport.parkNanos(1_000);
+		}
+		return spins + 1;
+	}
+
+	@Override
+	public TokenType type() {
+		return batch != null && position < batch.count ? TYPES[batch.types[position]] : null;
+	}
+
+	@Override
+	public String text() {
+		if (type() == null) {
+			return null;
+		}
+		if (batch.texts != null) {
+			return batch.texts[position];
+		}
+		return InternPool.text(TYPES[batch.types[position]], source, batch.starts[position], batch.lengths[position]);
+	}
+
+	@Override
+	public int operator() {
+		return type() != null ? batch.operators[position] : Operator.NONE;
+	}
+
+	@Override
+	public int index() {
+		return index;
+	}
+
+	@Override
+	public int line() {
+		return lines.line(type() != null ? batch.starts[position] : batch.end);
+	}
+
+	@Override
+	public int column() {
+		return lines.column(type() != null ? batch.starts[position] : batch.end);
+	}
+
+	@Override
+	public void advance() {
+		if (batch == null || position + 1 >= batch.count && !batch.last) {
+			nextBatch();
+		} else if (position < batch.count) {
+			position++;
+		}
+		index++;
+		if (position == batch.count && batch.failure != null) {
+			if (batch.failure instanceof Error) {
+				throw (Error) batch.failure;
+			}
+			throw (RuntimeException) batch.failure;
+		}
+	}
+
+	private void nextBatch() {
+		if (batch != null) {
+			// devolve o lote atual ao produtor
+			tail.lazySet(tail.get() + 1);
+		}
+		long sequence = tail.get();
+		int spins = 0;
+		while (head.get() == sequence) {
+			if (closed) {
+				throw new IllegalStateException("fonte de tokens já fechada");
+			}
+			// o produtor publica o último lote antes de terminar; confere head de novo
+			if (!producer.isAlive() && head.get() == sequence) {
+				throw new IllegalStateException("a thread do analisador léxico terminou sem publicar o último lote");
+			}
+			spins = idle(spins);
+		}
+		batch = ring[(int) sequence & mask];
+		position = 0;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+}
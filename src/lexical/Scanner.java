@@ -1,11 +1,11 @@
 package lexical;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 
 import exceptions.LexicalError;
+import metrics.CompileMetrics;
+import util.Operator;
+import util.ReservedWords;
 import util.TokenType;
 
 import static lexical.LexicalErrorMessages.ERROR_COMMENT;
@@ -16,7 +16,6 @@ import static lexical.LexicalErrorMessages.ERROR_REL_OPERATOR; // Qual que era e
 import static lexical.LexicalErrorMessages.ERROR_STRING;
 import static lexical.LexicalErrorMessages.GENERIC_ERROR;
 import static util.InvalidChars.CHARS;
-import static util.ReservedWords.WORDS;
 import static util.TokenType.ASSIGNMENT_OPERATOR;
 import static util.TokenType.MATH_OPERATOR;
 import static util.TokenType.NUMBER_FLOAT;
@@ -24,228 +23,456 @@ import static util.TokenType.REL_OPERATOR;
 
 public class Scanner {
 	private int state;
+	private ScannerEngine engine = ScannerEngine.SWITCH;
+	private SourceReader reader;
 	private char[] sourceCode;
 	private int pos;
-    private int line=1;
-    private int column;
+	private int limit;
+	private int tokenStart;
+	// linha e coluna só são calculadas quando pedidas, a partir das posições
+	private LineIndex lines;
+	private int backtracks;
+	private CompileMetrics metrics;
+	private InternPool pool = InternPool.shared();
 
 
 	public Scanner(String filename) {
 		try {
-			String content = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.UTF_8);
-			sourceCode = content.toCharArray();
-			pos = 0;
+			setReader(SourceReader.open(filename));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
+
+	public Scanner(SourceReader reader) {
+		setReader(reader);
+	}
+
+	public Scanner(SourceReader reader, ScannerEngine engine) {
+		setReader(reader);
+		this.engine = engine;
+	}
+
+	private void setReader(SourceReader reader) {
+		this.reader = reader;
+		sourceCode = reader.chars;
+		limit = reader.limit;
+		pos = 0;
+		lines = reader.isResident() ? new LineIndex(sourceCode, limit) : new LineIndex();
+	}
 	
+	// usados pelo IncrementalLexer para retomar a análise a partir de uma fronteira de token
+	void restart(int position) {
+		this.pos = position;
+		this.state = 0;
+	}
+
+	// null desliga a medição; ligada, cada scan() custa dois System.nanoTime()
+	public void setMetrics(CompileMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	// pool para o texto de identificadores, números e cadeias; null cria sempre uma String nova
+	public void setInternPool(InternPool pool) {
+		this.pool = pool;
+	}
+
+	int position() {
+		return pos;
+	}
+
+	/*
+	 * Índice de linhas para resolver as posições de tokenOffset() e endOffset().
+	 * Numa janela, indexa antes o que já foi lido; numa fonte residente o índice
+	 * se constrói sozinho.
+	 */
+	LineIndex lines() {
+		if (!reader.isResident()) {
+			lines.add(sourceCode, 0, pos, (int) reader.base());
+		}
+		return lines;
+	}
+
 	public Token nextToken() throws Exception {
+		TokenType type = scan();
+		return type != null ? token(type) : null;
+	}
+
+	// reconhece o próximo token sem criar objeto: o texto fica em
+	// sourceCode[tokenStart, pos) e a posição em tokenLine/tokenColumn
+	TokenType scan() {
+		if (metrics != null) {
+			return scanMeasured();
+		}
+		if (engine == ScannerEngine.TABLE) {
+			return scanWithTable();
+		}
+		return scanWithSwitch();
+	}
+
+	private TokenType scanMeasured() {
+		long startChars = reader.base() + pos;
+		int startBacktracks = backtracks;
+		long start = System.nanoTime();
+		TokenType type = null;
+		try {
+			type = engine == ScannerEngine.TABLE ? scanWithTable() : scanWithSwitch();
+			return type;
+		} catch (LexicalError e) {
+			metrics.lexicalError(e.getDescription());
+			throw e;
+		} finally {
+			metrics.scanned(type != null ? type.ordinal() : -1, System.nanoTime() - start, reader.base() + pos - startChars,
+					backtracks - startBacktracks);
+		}
+	}
+
+	int tokenStart() {
+		return tokenStart;
+	}
+
+	int tokenLength() {
+		return pos - tokenStart;
+	}
+
+	// texto do último token de scan(); só necessário quando a fonte não é residente
+	String tokenText(TokenType type) {
+		if (pool != null && InternPool.isInterned(type)) {
+			return pool.intern(sourceCode, tokenStart, pos - tokenStart);
+		}
+		return new String(sourceCode, tokenStart, pos - tokenStart);
+	}
+
+	// código (Operator) do último token de scan(), decodificado enquanto o texto está na janela
+	int tokenOperator(TokenType type) {
+		return Operator.decode(type, sourceCode, tokenStart, pos - tokenStart);
+	}
+
+	boolean isResident() {
+		return reader.isResident();
+	}
+
+	// posições absolutas no código-fonte, que não mudam quando a janela é compactada
+	int tokenOffset() {
+		return (int) (reader.base() + tokenStart);
+	}
+
+	// posição logo após o último caractere lido; no fim da entrada, o tamanho do código-fonte
+	int endOffset() {
+		return (int) (reader.base() + pos);
+	}
+
+	private TokenType scanWithSwitch() {
 		char currentChar;
-		String content = "";
 		state = 0;
 		
 		while (true) {
+            if(state == 0) {
+                tokenStart = pos;
+            }
             if(isEoF() && (state == 8 || state == 9) ) {
-                throw new LexicalError(
-                        ERROR_COMMENT,
-                        line,
-                        column > 0 ? column : 1
-                );
+                throw unclosedComment();
             }
 			if(isEoF()) {
 				return null;
 			}
 
             currentChar = nextChar();
-            if(isEndLine(currentChar)){
-                line++;
-                column=0;
-            }
 
 			switch(state) {
                 case 0:
                     //estado inicial
                     if(isLetter(currentChar) || currentChar == '_') {
-                        content+=currentChar;
                         state = 1;
                     } else if(isRelationalOrAssignmentOperator(currentChar)) {
-                        content += currentChar;
                         if(currentChar == '<') {
                             state = 12;
                         } else {
                             state = 13;
                         }
                     } else if(isDigit(currentChar)) {
-                        content += currentChar;
                         state = 3;
                     } else if(currentChar == '.') {
-                        content += currentChar;
                         state = 4;
                     } else if(isCommentLine(currentChar)){
-                        content += currentChar;
                         state = 6;
+                        skipRun();
                     } else if(isFirstSymbolCommentBlock(currentChar)){
-                        content += currentChar;
                         state = 7;
                     } else if(isMathOperator(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.MATH_OPERATOR, content);
+                        return TokenType.MATH_OPERATOR;
                     } else if(isLeftParen(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.LEFT_PAREN, content);
+                        return TokenType.LEFT_PAREN;
                     } else if(isRightParen(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.RIGHT_PAREN, content);
+                        return TokenType.RIGHT_PAREN;
                     } else if(isLeftBrace(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.LEFT_BRACE, content);
+                        return TokenType.LEFT_BRACE;
                     } else if(isRightBrace(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.RIGHT_BRACE, content);
+                        return TokenType.RIGHT_BRACE;
                     } else if(isInvalidChar(currentChar)){
-                        throw new LexicalError(ERROR_INVALID_CHAR, line, column);
+                        throw error(ERROR_INVALID_CHAR);
                     } else if (isColon(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.COLON, content);
+                        return TokenType.COLON;
                     } else if (isSemicolon(currentChar)) {
-                        content += currentChar;
-                        return new Token(TokenType.SEMICOLON, content);
+                        return TokenType.SEMICOLON;
                     } else if(isQuotes(currentChar)){
-                        content += currentChar;
                         state = 11;
+                        skipRun();
                     } else {
                         if (currentChar != ' ' && currentChar != '\t' && !isEndLine(currentChar)) {
-                            throw new LexicalError(GENERIC_ERROR, line, column);
+                            throw error(GENERIC_ERROR);
                         }
+                        skipRun();
                     }
 
                     break;
                 case 1:
                     //estado para identificadores
-                    if(isLetter(currentChar) || isDigit(currentChar) || currentChar == '_') {
-                        content+=currentChar;
-                    } else {
+                    if(!isLetter(currentChar) && !isDigit(currentChar) && currentChar != '_') {
                         back();
-                        if(WORDS.containsKey(content)){
-                            TokenType type = WORDS.get(content);
-                            return new Token(type, content);
-                        }
-                        return new Token(TokenType.IDENTIFIER, content);
+                        return identifier();
                     }
                     break;
                 case 3:
                     //estado para numeros inteiros
-                    if(isDigit(currentChar)) {
-                        content += currentChar;
-                    } else if (currentChar == '.') {
-                        content += currentChar;
+                    if (currentChar == '.') {
                         state= 4;
-                    } else {
+                    } else if(!isDigit(currentChar)) {
                         back();
-                        return new Token(TokenType.NUMBER_INTEGER, content);
+                        return TokenType.NUMBER_INTEGER;
                     }
                     break;
                 case 4:
                     //estado para numeros com ponto flutuante
                     if(isDigit(currentChar)) {
-                        content += currentChar;
                         state= 5;
                     } else {
                         back();
-                        throw new LexicalError(ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT, line, column);
+                        throw error(ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT);
                     }
                     break;
                 case 5:
                     // continuação float
-                    if(isDigit(currentChar)){
-                        content+=currentChar;
-                    } else if (currentChar == '.') {
-                        throw new LexicalError(ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT, line, column);
+                    if (currentChar == '.') {
+                        throw error(ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT);
                     }
-                    else{
+                    else if(!isDigit(currentChar)){
                         back();
-                        return new Token(NUMBER_FLOAT, content);
+                        return NUMBER_FLOAT;
                     }
                     break;
                 case 6:
                     // estado comentário linha
                     if(isEndLine(currentChar)){
-                        content = "";
                         state = 0;
                     }
+                    skipRun();
                     break;
                 case 7:
                     // estado /
                     if(isSecondSymbolCommentBlock(currentChar)){
-                        content+= currentChar;
                         state = 8;
+                        skipRun();
                     }else{
                         back();
-                        return new Token(MATH_OPERATOR, content);
+                        return MATH_OPERATOR;
                     }
                     break;
                 case 8:
                     // estado comentário bloco (parte 1)
                     if(isSecondSymbolCommentBlock(currentChar)){
                         state = 9;
+                    } else {
+                        skipRun();
                     }
                     break;
                 case 9:
                     // estado comentário bloco (parte 2)
                     if (isFirstSymbolCommentBlock(currentChar)){
-                        content = "";
                         state = 0;
                     }else{
                         state = 8;
                     }
+                    skipRun();
                     break;
                 case 10:
                     // estado =
                     if(isRelationalOrAssignmentOperator(currentChar)){
-                        content+= currentChar;
-                        return new Token(REL_OPERATOR, content);
+                        return REL_OPERATOR;
                     }else{
                         back();
-                        return new Token(ASSIGNMENT_OPERATOR, content);
+                        return ASSIGNMENT_OPERATOR;
                     }
                 case 11:
                     // estado para fechamento de aspas
                     if(isQuotes(currentChar)){
-                        content += currentChar;
-                        return new Token(TokenType.STRING, content);
+                        return TokenType.STRING;
                     } else if (isEoF()){
-                        throw new LexicalError(ERROR_STRING, line, column);
-                    } else {
-                        content += currentChar;
+                        throw error(ERROR_STRING);
                     }
+                    skipRun();
                     break;
                 case 12:
                     // estado para < (pode ser <, <= ou <-)
                     if(currentChar == '=') {
-                        content += currentChar;
-                        return new Token(TokenType.REL_OPERATOR, content); // <=
+                        return TokenType.REL_OPERATOR; // <=
                     }
                     else if (currentChar == '-') {
-                        content += currentChar;
-                        return new Token(TokenType.ASSIGNMENT_OPERATOR, content); // <-
+                        return TokenType.ASSIGNMENT_OPERATOR; // <-
                     } else {
                         back();
-                        return new Token(TokenType.REL_OPERATOR, content); // <
+                        return TokenType.REL_OPERATOR; // <
                     }
                 case 13:
                     // estado para >, !, = (pode ser >=, >, !=, ==)
                     if(currentChar == '='){
-                        content += currentChar;
-                        return new Token(TokenType.REL_OPERATOR, content); // >=, !=, ==
+                        return TokenType.REL_OPERATOR; // >=, !=, ==
                     } else {
                         back();
-                        return new Token(TokenType.REL_OPERATOR, content); // >, !
+                        return TokenType.REL_OPERATOR; // >, !
                     }
                 }
             }   
         }
 	
+	private TokenType scanWithTable() {
+		int[][] transitions = LexerTables.TRANSITIONS;
+		state = 0;
+
+		while (true) {
+			if (state == 0) {
+				tokenStart = pos;
+			}
+			if (isEoF()) {
+				if (state == 8 || state == 9) {
+					throw unclosedComment();
+				}
+				return null;
+			}
+
+			char currentChar = nextChar();
+
+			int entry = transitions[state][LexerTables.classOf(currentChar)];
+			int argument = (entry >>> 8) & 0xFF;
+			switch (entry >>> 16) {
+				case LexerTables.NEXT:
+					state = entry & 0xFF;
+					skipRun();
+					break;
+				case LexerTables.EMIT:
+					return LexerTables.TYPES[argument];
+				case LexerTables.EMIT_BACK:
+					back();
+					return LexerTables.TYPES[argument];
+				case LexerTables.IDENTIFIER_BACK:
+					back();
+					return identifier();
+				case LexerTables.ERROR:
+					throw error(LexerTables.ERRORS[argument]);
+				case LexerTables.ERROR_BACK:
+					back();
+					throw error(LexerTables.ERRORS[argument]);
+				default:
+					// corpo de cadeia de caracteres
+					if (isEoF()) {
+						throw error(ERROR_STRING);
+					}
+					skipRun();
+			}
+		}
+	}
+
+	/*
+	 * Caminho rápido para os estados que só avançam a posição: brancos no
+	 * estado 0, comentário de linha (6), corpo de comentário de bloco (8) e
+	 * corpo de cadeia (11). Consome de uma vez, sem passar pelo switch, os
+	 * caracteres que o autômato apenas leria e deixaria no mesmo estado. Para
+	 * no fim da janela; o refill continua com o caminho normal.
+	 */
+	private void skipRun() {
+		switch (state) {
+			case 0:
+				skipBlanks();
+				break;
+			case 6:
+				skipLineComment();
+				break;
+			case 8:
+				skipUntil('*', limit);
+				break;
+			case 11:
+				// o último caractere fica para o caminho normal, que testa o fim da entrada depois de lê-lo
+				skipUntil('"', limit - 1);
+				break;
+			default:
+		}
+	}
+
+	private void skipBlanks() {
+		char[] source = sourceCode;
+		int p = pos;
+		int end = limit;
+		while (p < end) {
+			char c = source[p];
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				break;
+			}
+			p++;
+		}
+		pos = p;
+	}
+
+	// até antes da quebra de linha, que o caminho normal consome para voltar ao estado 0
+	private void skipLineComment() {
+		char[] source = sourceCode;
+		int p = pos;
+		int end = limit;
+		while (p < end && source[p] != '\n' && source[p] != '\r') {
+			p++;
+		}
+		pos = p;
+	}
+
+	private void skipUntil(char stop, int end) {
+		char[] source = sourceCode;
+		int p = pos;
+		while (p < end && source[p] != stop) {
+			p++;
+		}
+		pos = p;
+	}
+
+	// erro no último caractere lido
+	private LexicalError error(String message) {
+		int end = endOffset();
+		LineIndex index = lines();
+		return new LexicalError(message, index.line(end), index.column(end) - 1);
+	}
+
+	private LexicalError unclosedComment() {
+		int end = endOffset();
+		LineIndex index = lines();
+		int column = index.column(end) - 1;
+		return new LexicalError(ERROR_COMMENT, index.line(end), column > 0 ? column : 1);
+	}
+
+	private TokenType identifier() {
+		TokenType type = ReservedWords.lookup(sourceCode, tokenStart, pos - tokenStart);
+		return type != null ? type : TokenType.IDENTIFIER;
+	}
+
+	private Token token(TokenType type) {
+		Token token;
+		if (reader.isResident()) {
+			token = new Token(type, sourceCode, tokenStart, pos - tokenStart);
+		} else {
+			// a janela pode ser compactada no próximo refill, então o texto é copiado agora
+			token = new Token(type, tokenText(type), tokenOffset());
+		}
+		token.setOperator(tokenOperator(type));
+		return token;
+	}
+
 	private boolean isLetter(char c) {
 		return (c>='a' && c <= 'z') || (c>='A' && c <= 'Z');		
 	}
@@ -279,20 +506,34 @@ public class Scanner {
     }
 
 	private char nextChar() {
-        column ++;
 		return sourceCode[pos++];
 	}
 
 	private void back() {
-        column--;
-        pos--;
-        if(isEndLine(sourceCode[pos])){
-            line--;
-        }
+		backtracks++;
+		pos--;
 	}
 	
 	private boolean isEoF() {
-		return pos >= sourceCode.length;
+		return pos >= limit && !refill();
+	}
+
+	private boolean refill() {
+		// comentários não viram token: basta manter o caractere corrente
+		boolean inComment = state == 6 || state == 8 || state == 9;
+		if (!reader.isResident()) {
+			// as quebras de linha do trecho que vai ser descartado entram no índice antes
+			lines.add(sourceCode, 0, limit, (int) reader.base());
+		}
+		int shift = reader.fill(inComment ? pos : tokenStart);
+		if (shift < 0) {
+			return false;
+		}
+		pos -= shift;
+		tokenStart -= shift;
+		sourceCode = reader.chars;
+		limit = reader.limit;
+		return pos < limit;
 	}
 
     private boolean isEndLine(char c) {
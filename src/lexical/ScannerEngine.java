@@ -0,0 +1,6 @@
+package lexical;
+
+public enum ScannerEngine {
+    SWITCH,
+    TABLE,
+}
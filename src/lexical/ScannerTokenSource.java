@@ -0,0 +1,76 @@
+package lexical;
+
+import java.util.List;
+
+import exceptions.LexicalError;
+import util.Diagnostic;
+import util.Operator;
+import util.TokenType;
+
+// Puxa um Token por vez do Scanner, como o Parser sempre fez.
+public class ScannerTokenSource implements TokenSource {
+	private final Scanner scanner;
+	private final List<Diagnostic> diagnostics;
+	private Token token;
+	private int index = -1;
+	// início do token corrente, ou o fim da entrada
+	private int offset;
+
+	public ScannerTokenSource(Scanner scanner) {
+		this(scanner, null);
+	}
+
+	// com uma lista, erros léxicos são registrados nela e a análise continua
+	// no caractere seguinte, em vez de interromper o Parser
+	public ScannerTokenSource(Scanner scanner, List<Diagnostic> diagnostics) {
+		this.scanner = scanner;
+		this.diagnostics = diagnostics;
+	}
+
+	@Override
+	public TokenType type() {
+		return token != null ? token.getType() : null;
+	}
+
+	@Override
+	public String text() {
+		return token != null ? token.getText() : null;
+	}
+
+	@Override
+	public int operator() {
+		return token != null ? token.getOperator() : Operator.NONE;
+	}
+
+	@Override
+	public int index() {
+		return index;
+	}
+
+	@Override
+	public int line() {
+		return scanner.lines().line(offset);
+	}
+
+	@Override
+	public int column() {
+		return scanner.lines().column(offset);
+	}
+
+	@Override
+	public void advance() throws Exception {
+		while (true) {
+			try {
+				token = scanner.nextToken();
+				break;
+			} catch (LexicalError e) {
+				if (diagnostics == null) {
+					throw e;
+				}
+				diagnostics.add(Diagnostic.of(e));
+			}
+		}
+		offset = token != null ? scanner.tokenOffset() : scanner.endOffset();
+		index++;
+	}
+}
@@ -0,0 +1,207 @@
+package lexical;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class SourceReader implements Closeable {
+    public static final int DEFAULT_WINDOW = 1 << 16;
+    public static final int DEFAULT_MAPPED_REGION = 1 << 24;
+    // arquivos maiores que isto são lidos por open() em janelas, sem o conteúdo inteiro no heap
+    public static final long RESIDENT_LIMIT = 1 << 20;
+
+    char[] chars;
+    int limit;
+    private final boolean resident;
+    private long base;
+
+    private ReadableByteChannel channel;
+    private FileChannel mappedFile;
+    private long mappedSize;
+    private long regionStart;
+    private int regionSize;
+    private ByteBuffer bytes;
+    private CharsetDecoder decoder;
+    private boolean endOfInput;
+    private boolean drained;
+
+    private SourceReader(char[] chars, int limit) {
+        this.chars = chars;
+        this.limit = limit;
+        this.resident = true;
+        this.drained = true;
+    }
+
+    private SourceReader(int window) {
+        this.chars = new char[Math.max(window, 2)];
+        this.limit = 0;
+        this.resident = false;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    public static SourceReader fromFile(String filename) throws IOException {
+        return fromBytes(Files.readAllBytes(Paths.get(filename)));
+    }
+
+    /*
+     * Para quem só percorre os tokens uma vez (o Scanner, o modo em lote):
+     * até RESIDENT_LIMIT o arquivo é lido inteiro; acima disso é mapeado por
+     * regiões e decodificado numa janela, e a memória usada não cresce com o
+     * tamanho do arquivo. Quem precisa de chars() deve usar fromFile().
+     */
+    public static SourceReader open(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (Files.size(path) <= RESIDENT_LIMIT) {
+            return fromBytes(Files.readAllBytes(path));
+        }
+        return mapped(path, DEFAULT_WINDOW, DEFAULT_MAPPED_REGION);
+    }
+
+    public static SourceReader fromBytes(byte[] content) {
+        // decodifica direto para o array final, sem String intermediária
+        CharBuffer decoded = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(content));
+        return new SourceReader(decoded.array(), decoded.limit());
+    }
+
+    public static SourceReader of(String content) {
+        return of(content.toCharArray(), content.length());
+    }
+
+    public static SourceReader of(char[] content, int length) {
+        return new SourceReader(content, length);
+    }
+
+    public static SourceReader fromChannel(ReadableByteChannel channel) {
+        return fromChannel(channel, DEFAULT_WINDOW);
+    }
+
+    public static SourceReader fromChannel(ReadableByteChannel channel, int window) {
+        SourceReader reader = new SourceReader(window);
+        reader.channel = channel;
+        reader.bytes = ByteBuffer.allocate(Math.max(window, 16));
+        reader.bytes.flip();
+        return reader;
+    }
+
+    public static SourceReader mapped(String filename) throws IOException {
+        return mapped(Paths.get(filename), DEFAULT_WINDOW, DEFAULT_MAPPED_REGION);
+    }
+
+    public static SourceReader mapped(Path path, int window, int region) throws IOException {
+        SourceReader reader = new SourceReader(window);
+        reader.mappedFile = FileChannel.open(path, StandardOpenOption.READ);
+        reader.mappedSize = reader.mappedFile.size();
+        reader.regionSize = Math.max(region, 16);
+        reader.bytes = ByteBuffer.allocate(0);
+        return reader;
+    }
+
+    public boolean isResident() {
+        return resident;
+    }
+
+    // conteúdo de uma fonte residente, sem cópia; válido até length()
+    public char[] chars() {
+        if (!resident) {
+            throw new IllegalStateException("fonte lida por janela não tem o conteúdo inteiro na memória");
+        }
+        return chars;
+    }
+
+    public int length() {
+        return limit;
+    }
+
+    long base() {
+        return base;
+    }
+
+    /*
+     * Descarta chars[0, keepFrom) e decodifica mais entrada a partir de limit.
+     * Devolve quantas posições o conteúdo foi deslocado para trás, ou -1 quando
+     * não há mais nada para ler.
+     */
+    int fill(int keepFrom) {
+        if (drained) {
+            return -1;
+        }
+        int kept = limit - keepFrom;
+        if (keepFrom > 0) {
+            System.arraycopy(chars, keepFrom, chars, 0, kept);
+            base += keepFrom;
+            limit = kept;
+        }
+        if (chars.length - limit < 2) {
+            // token maior que a janela: cresce só o necessário
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        try {
+            decode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return keepFrom;
+    }
+
+    private void decode() throws IOException {
+        int start = limit;
+        CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+        boolean needBytes = !bytes.hasRemaining();
+        while (out.position() == start && !drained) {
+            if (needBytes && !endOfInput) {
+                endOfInput = !readBytes();
+            }
+            needBytes = true;
+            CoderResult result = decoder.decode(bytes, out, endOfInput);
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(out);
+                drained = true;
+                close();
+            }
+        }
+        limit = out.position();
+    }
+
+    private boolean readBytes() throws IOException {
+        if (mappedFile != null) {
+            long next = regionStart + bytes.position();
+            if (regionStart + bytes.limit() >= mappedSize) {
+                return false;
+            }
+            regionStart = next;
+            bytes = mappedFile.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                    Math.min(regionSize, mappedSize - regionStart));
+            return true;
+        }
+        bytes.compact();
+        int read;
+        try {
+            read = channel.read(bytes);
+        } finally {
+            bytes.flip();
+        }
+        return read >= 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mappedFile != null) {
+            mappedFile.close();
+        }
+    }
+}
@@ -5,11 +5,30 @@ import util.TokenType;
 public class Token {
 	private TokenType type;
 	private String text;
+	private char[] source;
+	private int offset;
+	private int length;
+	// código Operator; NONE para o que não é operador
+	private int operator;
 	
 	public Token(TokenType type, String text) {
+		this(type, text, -1);
+	}
+
+	public Token(TokenType type, String text, int offset) {
 		super();
 		this.type = type;
 		this.text = text;
+		this.offset = offset;
+		this.length = text.length();
+	}
+
+	public Token(TokenType type, char[] source, int offset, int length) {
+		super();
+		this.type = type;
+		this.source = source;
+		this.offset = offset;
+		this.length = length;
 	}
 
 	public TokenType getType() {
@@ -21,16 +40,38 @@ public class Token {
 	}
 
 	public String getText() {
+		// o texto só é materializado quando alguém realmente pede
+		if (text == null) {
+			text = InternPool.text(type, source, offset, length);
+		}
 		return text;
 	}
 
 	public void setText(String text) {
 		this.text = text;
+		this.source = null;
+		this.length = text.length();
+	}
+
+	public int getOperator() {
+		return operator;
+	}
+
+	public void setOperator(int operator) {
+		this.operator = operator;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLength() {
+		return length;
 	}
 
 	@Override
 	public String toString() {
-		return "Token [type=" + type + ", text='" + text + "']";
+		return "Token [type=" + type + ", text='" + getText() + "']";
 	}
 	
 }
@@ -0,0 +1,213 @@
+package lexical;
+
+import java.util.Arrays;
+import java.util.List;
+
+import exceptions.LexicalError;
+import util.Diagnostic;
+import util.Operator;
+import util.TokenType;
+
+/*
+ * Todos os tokens de um arquivo em arrays paralelos de primitivos: tipo
+ * (ordinal em um byte), código do operador (um byte), início e tamanho no
+ * código-fonte. São 10 bytes por token, contra um Token e seu String no heap;
+ * objetos Token só são criados se alguém chamar token(i), e linha e coluna só
+ * são calculadas, pelo LineIndex, quando pedidas.
+ *
+ * O buffer pode ser reaproveitado: lex() descarta o conteúdo anterior mas
+ * mantém os arrays já alocados.
+ */
+public class TokenBuffer implements TokenSource {
+	private static final TokenType[] TYPES = TokenType.values();
+	// a cada quantos tokens lex() chama lexed()
+	private static final int LEXED_MASK = 255;
+
+	private char[] source;
+	private int count;
+	private byte[] types;
+	private byte[] operators;
+	private int[] starts;
+	private int[] lengths;
+	private LineIndex lines;
+	// erro que interrompeu a análise: só é lançado quando o cursor chega nele,
+	// para o Parser ver os diagnósticos na mesma ordem que veria com o Scanner
+	private LexicalError error;
+	private int cursor = -1;
+	private int end;
+
+	public TokenBuffer() {
+		this(1024);
+	}
+
+	public TokenBuffer(int capacity) {
+		capacity = Math.max(capacity, 16);
+		types = new byte[capacity];
+		operators = new byte[capacity];
+		starts = new int[capacity];
+		lengths = new int[capacity];
+	}
+
+	public void lex(char[] source, int length) {
+		lex(source, length, ScannerEngine.SWITCH);
+	}
+
+	public void lex(char[] source, int length, ScannerEngine engine) {
+		lex(source, length, engine, null);
+	}
+
+	/*
+	 * Com uma lista de diagnósticos, cada erro léxico é registrado nela e a
+	 * análise continua a partir do caractere seguinte; o buffer fica só com
+	 * os tokens válidos.
+	 */
+	public void lex(char[] source, int length, ScannerEngine engine, List<Diagnostic> diagnostics) {
+		this.source = source;
+		count = 0;
+		error = null;
+		cursor = -1;
+		Scanner scanner = new Scanner(SourceReader.of(source, length), engine);
+		while (true) {
+			try {
+				TokenType type = scanner.scan();
+				if (type == null) {
+					break;
+				}
+				add(type, scanner.tokenOperator(type), scanner.tokenStart(), scanner.tokenLength());
+				if ((count & LEXED_MASK) == 0) {
+					lexed(count);
+				}
+			} catch (LexicalError e) {
+				if (diagnostics == null) {
+					error = e;
+					break;
+				}
+				diagnostics.add(Diagnostic.of(e));
+			}
+		}
+		end = scanner.endOffset();
+		lines = scanner.lines();
+	}
+
+	/*
+	 * Chamado por lex() a cada 256 tokens, com o total até agora. Não faz
+	 * nada aqui; uma subclasse pode interromper a análise de um texto longo
+	 * lançando uma exceção não verificada, que sai de lex() como está.
+	 */
+	protected void lexed(int count) {
+	}
+
+	private void add(TokenType type, int operator, int start, int length) {
+		if (count == types.length) {
+			int capacity = count * 2;
+			types = Arrays.copyOf(types, capacity);
+			operators = Arrays.copyOf(operators, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+		}
+		types[count] = (byte) type.ordinal();
+		operators[count] = (byte) operator;
+		starts[count] = start;
+		lengths[count] = length;
+		count++;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public LexicalError getError() {
+		return error;
+	}
+
+	public char[] source() {
+		return source;
+	}
+
+	public TokenType type(int index) {
+		return TYPES[types[index]];
+	}
+
+	public int operator(int index) {
+		return operators[index];
+	}
+
+	public int start(int index) {
+		return starts[index];
+	}
+
+	public int length(int index) {
+		return lengths[index];
+	}
+
+	// início do token, ou o fim da entrada para o índice logo depois do último
+	public int offset(int index) {
+		return index < count ? starts[index] : end;
+	}
+
+	public int line(int index) {
+		return lines.line(starts[index]);
+	}
+
+	public int column(int index) {
+		return lines.column(starts[index]);
+	}
+
+	public LineIndex lines() {
+		return lines;
+	}
+
+	public String text(int index) {
+		return InternPool.text(type(index), source, starts[index], lengths[index]);
+	}
+
+	public Token token(int index) {
+		Token token = new Token(type(index), source, starts[index], lengths[index]);
+		token.setOperator(operators[index]);
+		return token;
+	}
+
+	public void rewind() {
+		cursor = -1;
+	}
+
+	@Override
+	public TokenType type() {
+		return cursor < count ? TYPES[types[cursor]] : null;
+	}
+
+	@Override
+	public String text() {
+		return cursor < count ? text(cursor) : null;
+	}
+
+	@Override
+	public int operator() {
+		return cursor < count ? operators[cursor] : Operator.NONE;
+	}
+
+	@Override
+	public int index() {
+		return cursor;
+	}
+
+	@Override
+	public int line() {
+		return lines.line(cursor < count ? starts[cursor] : end);
+	}
+
+	@Override
+	public int column() {
+		return lines.column(cursor < count ? starts[cursor] : end);
+	}
+
+	@Override
+	public void advance() {
+		if (cursor < count) {
+			cursor++;
+		}
+		if (cursor == count && error != null) {
+			throw error;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package lexical;
+
+import util.TokenType;
+
+// O que o Parser precisa de uma sequência de tokens: o token corrente e avançar.
+public interface TokenSource {
+	// tipo do token corrente, ou null no fim da entrada
+	TokenType type();
+
+	String text();
+
+	// código (util.Operator) do token corrente; Operator.NONE se não for operador ou no fim da entrada
+	int operator();
+
+	// posição do token corrente na sequência, a partir de 0
+	int index();
+
+	// linha e coluna do token corrente; no fim da entrada, a posição logo após o último caractere
+	int line();
+
+	int column();
+
+	void advance() throws Exception;
+}
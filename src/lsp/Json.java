@@ -0,0 +1,304 @@
+package lsp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * JSON mínimo para o JSON-RPC do LanguageServer: objetos viram Map (na ordem
+ * das chaves), arrays viram List, números inteiros viram Long e os demais
+ * Double. write() faz o caminho inverso e também aceita int[].
+ */
+final class Json {
+	private final String text;
+	private int pos;
+
+	private Json(String text) {
+		this.text = text;
+	}
+
+	static Object parse(String text) {
+		Json json = new Json(text);
+		Object value = json.value();
+		json.blanks();
+		if (json.pos != text.length()) {
+			throw json.error("conteúdo depois do valor");
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	static Map<String, Object> object(Object value) {
+		return value instanceof Map ? (Map<String, Object>) value : null;
+	}
+
+	// campo de um objeto aninhado, por exemplo get(params, "textDocument", "uri")
+	static Object get(Object value, String... path) {
+		for (String key : path) {
+			Map<String, Object> map = object(value);
+			if (map == null) {
+				return null;
+			}
+			value = map.get(key);
+		}
+		return value;
+	}
+
+	static int getInt(Object value, String... path) {
+		Object number = get(value, path);
+		return number instanceof Number ? ((Number) number).intValue() : -1;
+	}
+
+	static String getString(Object value, String... path) {
+		Object string = get(value, path);
+		return string instanceof String ? (String) string : null;
+	}
+
+	static String write(Object value) {
+		StringBuilder sb = new StringBuilder();
+		write(value, sb);
+		return sb.toString();
+	}
+
+	static void write(Object value, StringBuilder sb) {
+		if (value == null) {
+			sb.append("null");
+		} else if (value instanceof String) {
+			quote((String) value, sb);
+		} else if (value instanceof Number || value instanceof Boolean) {
+			sb.append(value);
+		} else if (value instanceof Map) {
+			sb.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				quote(entry.getKey().toString(), sb);
+				sb.append(':');
+				write(entry.getValue(), sb);
+			}
+			sb.append('}');
+		} else if (value instanceof List) {
+			sb.append('[');
+			boolean first = true;
+			for (Object item : (List<?>) value) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				write(item, sb);
+			}
+			sb.append(']');
+		} else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			sb.append('[');
+			for (int i = 0; i < array.length; i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append(array[i]);
+			}
+			sb.append(']');
+		} else {
+			throw new IllegalArgumentException("sem representação JSON: " + value.getClass());
+		}
+	}
+
+	private static void quote(String text, StringBuilder sb) {
+		sb.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	private Object value() {
+		blanks();
+		if (pos == text.length()) {
+			throw error("fim inesperado");
+		}
+		char c = text.charAt(pos);
+		switch (c) {
+			case '{':
+				return objectValue();
+			case '[':
+				return arrayValue();
+			case '"':
+				return stringValue();
+			case 't':
+				return literal("true", Boolean.TRUE);
+			case 'f':
+				return literal("false", Boolean.FALSE);
+			case 'n':
+				return literal("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return numberValue();
+				}
+				throw error("caractere inesperado '" + c + "'");
+		}
+	}
+
+	private Map<String, Object> objectValue() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		pos++;
+		blanks();
+		if (peek() == '}') {
+			pos++;
+			return map;
+		}
+		while (true) {
+			blanks();
+			if (peek() != '"') {
+				throw error("esperado nome de campo");
+			}
+			String key = stringValue();
+			blanks();
+			expect(':');
+			map.put(key, value());
+			blanks();
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect('}');
+				return map;
+			}
+		}
+	}
+
+	private List<Object> arrayValue() {
+		List<Object> list = new ArrayList<>();
+		pos++;
+		blanks();
+		if (peek() == ']') {
+			pos++;
+			return list;
+		}
+		while (true) {
+			list.add(value());
+			blanks();
+			if (peek() == ',') {
+				pos++;
+			} else {
+				expect(']');
+				return list;
+			}
+		}
+	}
+
+	private String stringValue() {
+		pos++;
+		StringBuilder sb = new StringBuilder();
+		while (true) {
+			if (pos >= text.length()) {
+				throw error("cadeia não fechada");
+			}
+			char c = text.charAt(pos++);
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (pos >= text.length()) {
+				throw error("cadeia não fechada");
+			}
+			char escaped = text.charAt(pos++);
+			switch (escaped) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					if (pos + 4 > text.length()) {
+						throw error("escape \\u incompleto");
+					}
+					try {
+						sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("escape \\u inválido");
+					}
+					pos += 4;
+					break;
+				default:
+					// \" \\ \/
+					sb.append(escaped);
+			}
+		}
+	}
+
+	private Object numberValue() {
+		int start = pos;
+		boolean integer = true;
+		while (pos < text.length()) {
+			char c = text.charAt(pos);
+			if (c == '.' || c == 'e' || c == 'E') {
+				integer = false;
+			} else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+				break;
+			}
+			pos++;
+		}
+		String number = text.substring(start, pos);
+		try {
+			return integer ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw error("número inválido: " + number);
+		}
+	}
+
+	private Object literal(String word, Object value) {
+		if (!text.startsWith(word, pos)) {
+			throw error("esperado " + word);
+		}
+		pos += word.length();
+		return value;
+	}
+
+	private void blanks() {
+		while (pos < text.length()) {
+			char c = text.charAt(pos);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private char peek() {
+		return pos < text.length() ? text.charAt(pos) : 0;
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("esperado '" + c + "'");
+		}
+		pos++;
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException("JSON inválido na posição " + pos + ": " + message);
+	}
+}
@@ -0,0 +1,582 @@
+package lsp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lexical.ScannerEngine;
+import lexical.TokenBuffer;
+import syntactic.Parser;
+import util.Diagnostic;
+import util.TokenType;
+
+/*
+ * Servidor LSP (JSON-RPC com cabeçalho Content-Length) sobre a entrada e a
+ * saída padrão, para editores usarem o compilador sem um processo por
+ * verificação. Publica os erros léxicos, sintáticos e semânticos de
+ * Parser.diagnose() e fornece semantic tokens a partir do TokenType.
+ *
+ * A thread que lê as mensagens só aplica as edições ao texto: a análise roda
+ * num executor, alguns milissegundos depois da última edição (debounce). Cada
+ * edição incrementa a geração do documento; uma análise que encontra uma
+ * geração mais nova (conferida a cada 256 tokens, tanto no Scanner quanto no
+ * Parser) desiste e não publica nada, então digitar nunca espera por uma
+ * análise velha.
+ */
+public class LanguageServer {
+	public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+
+	// códigos de erro do JSON-RPC e do LSP
+	private static final int PARSE_ERROR = -32700;
+	private static final int INVALID_REQUEST = -32600;
+	private static final int METHOD_NOT_FOUND = -32601;
+	private static final int INTERNAL_ERROR = -32603;
+	private static final int SERVER_NOT_INITIALIZED = -32002;
+	private static final int CONTENT_MODIFIED = -32801;
+
+	private static final int ERROR_SEVERITY = 1;
+	private static final int INCREMENTAL_SYNC = 2;
+	// a cada quantos tokens a análise confere se ficou velha
+	private static final int CANCELLATION_CHECK_MASK = 255;
+
+	private static final List<String> TOKEN_TYPES = Arrays.asList("keyword", "type", "variable", "number", "string", "operator");
+	private static final int[] TOKEN_TYPE_OF = new int[TokenType.values().length];
+
+	static {
+		Arrays.fill(TOKEN_TYPE_OF, -1);
+		for (TokenType type : new TokenType[] {TokenType.PRINT_STATEMENT, TokenType.INPUT_STATEMENT,
+				TokenType.CONDITIONAL_IF_STATEMENT, TokenType.ALTERNATIVE_ELSE_STATEMENT, TokenType.LOOP_FOR_STATEMENT,
+				TokenType.DO_STATEMENT, TokenType.MAIN_FUNCTION, TokenType.VARIABLE_DECLARATION}) {
+			TOKEN_TYPE_OF[type.ordinal()] = 0;
+		}
+		TOKEN_TYPE_OF[TokenType.INTEGER_DATA_TYPE.ordinal()] = 1;
+		TOKEN_TYPE_OF[TokenType.FLOATING_DATA_TYPE.ordinal()] = 1;
+		TOKEN_TYPE_OF[TokenType.IDENTIFIER.ordinal()] = 2;
+		TOKEN_TYPE_OF[TokenType.NUMBER_INTEGER.ordinal()] = 3;
+		TOKEN_TYPE_OF[TokenType.NUMBER_FLOAT.ordinal()] = 3;
+		TOKEN_TYPE_OF[TokenType.STRING.ordinal()] = 4;
+		for (TokenType type : new TokenType[] {TokenType.REL_OPERATOR, TokenType.MATH_OPERATOR,
+				TokenType.ASSIGNMENT_OPERATOR, TokenType.AND_OPERATOR, TokenType.OR_OPERATOR}) {
+			TOKEN_TYPE_OF[type.ordinal()] = 5;
+		}
+	}
+
+	private final InputStream in;
+	private final OutputStream out;
+	private final ScheduledThreadPoolExecutor executor;
+	private final long debounceMillis;
+	private final Map<String, Document> documents = new ConcurrentHashMap<>();
+	private boolean initialized;
+	private boolean shutdown;
+
+	private static class Document {
+		final String uri;
+		// alterados só pela thread de leitura, sob o lock do documento
+		final StringBuilder text;
+		int version;
+		// lida sem o lock pela análise em andamento
+		volatile int generation;
+		ScheduledFuture<?> analysis;
+
+		Document(String uri, String text, int version) {
+			this.uri = uri;
+			this.text = new StringBuilder(text);
+			this.version = version;
+		}
+	}
+
+	// lançada de dentro do Scanner ou do Parser quando o documento mudou durante a análise
+	private static class Stale extends CancellationException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	// TokenBuffer que desiste, na análise léxica e no Parser, quando a geração do documento muda
+	private static class Tokens extends TokenBuffer {
+		private final Document document;
+		private final int generation;
+
+		Tokens(Document document, int generation) {
+			this.document = document;
+			this.generation = generation;
+		}
+
+		@Override
+		protected void lexed(int count) {
+			check();
+		}
+
+		@Override
+		public void advance() {
+			if ((index() & CANCELLATION_CHECK_MASK) == 0) {
+				check();
+			}
+			super.advance();
+		}
+
+		private void check() {
+			if (document.generation != generation) {
+				throw new Stale();
+			}
+		}
+	}
+
+	public LanguageServer(InputStream in, OutputStream out, int threads) {
+		this(in, out, threads, DEFAULT_DEBOUNCE_MILLIS);
+	}
+
+	public LanguageServer(InputStream in, OutputStream out, int threads, long debounceMillis) {
+		this.in = new BufferedInputStream(in);
+		this.out = out;
+		this.debounceMillis = debounceMillis;
+		executor = new ScheduledThreadPoolExecutor(threads, r -> {
+			Thread thread = new Thread(r, "mini_compiler-lsp");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	// atende até a notificação exit ou o fim da entrada; true se o cliente pediu shutdown antes
+	public boolean serve() throws IOException {
+		try {
+			while (true) {
+				String message = read();
+				if (message == null) {
+					return false;
+				}
+				Object parsed;
+				try {
+					parsed = Json.parse(message);
+				} catch (IllegalArgumentException e) {
+					error(null, PARSE_ERROR, e.getMessage());
+					continue;
+				}
+				Map<String, Object> object = Json.object(parsed);
+				if (object == null) {
+					// lotes (arrays) não são suportados
+					error(null, INVALID_REQUEST, "a mensagem não é um objeto");
+					continue;
+				}
+				String method = Json.getString(object, "method");
+				if ("exit".equals(method)) {
+					return shutdown;
+				}
+				Object id = object.get("id");
+				try {
+					handle(method, id, object.get("params"), object.containsKey("id"));
+				} catch (RuntimeException e) {
+					// uma mensagem malformada não derruba a sessão do editor
+					if (object.containsKey("id")) {
+						error(id, INTERNAL_ERROR, "Erro interno do servidor: " + e);
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void handle(String method, Object id, Object params, boolean request) throws IOException {
+		if (method == null) {
+			if (request) {
+				error(id, INVALID_REQUEST, "mensagem sem method");
+			}
+			return;
+		}
+		if (!initialized && !method.equals("initialize")) {
+			if (request) {
+				error(id, SERVER_NOT_INITIALIZED, "initialize ainda não foi chamado");
+			}
+			return;
+		}
+		switch (method) {
+			case "initialize":
+				initialized = true;
+				respond(id, capabilities());
+				break;
+			case "shutdown":
+				shutdown = true;
+				respond(id, null);
+				break;
+			case "textDocument/didOpen":
+				open(params);
+				break;
+			case "textDocument/didChange":
+				change(params);
+				break;
+			case "textDocument/didClose":
+				close(params);
+				break;
+			case "textDocument/semanticTokens/full":
+				semanticTokens(id, Json.getString(params, "textDocument", "uri"));
+				break;
+			default:
+				// notificações desconhecidas (initialized, $/cancelRequest, didSave...) são ignoradas
+				if (request) {
+					error(id, METHOD_NOT_FOUND, "método não suportado: " + method);
+				}
+		}
+	}
+
+	private static Map<String, Object> capabilities() {
+		Map<String, Object> sync = new LinkedHashMap<>();
+		sync.put("openClose", true);
+		sync.put("change", INCREMENTAL_SYNC);
+		Map<String, Object> legend = new LinkedHashMap<>();
+		legend.put("tokenTypes", TOKEN_TYPES);
+		legend.put("tokenModifiers", new ArrayList<>());
+		Map<String, Object> semanticTokens = new LinkedHashMap<>();
+		semanticTokens.put("legend", legend);
+		semanticTokens.put("full", true);
+		Map<String, Object> capabilities = new LinkedHashMap<>();
+		capabilities.put("textDocumentSync", sync);
+		capabilities.put("semanticTokensProvider", semanticTokens);
+		Map<String, Object> info = new LinkedHashMap<>();
+		info.put("name", "mini_compiler");
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("capabilities", capabilities);
+		result.put("serverInfo", info);
+		return result;
+	}
+
+	private void open(Object params) {
+		String uri = Json.getString(params, "textDocument", "uri");
+		String text = Json.getString(params, "textDocument", "text");
+		if (uri == null || text == null) {
+			return;
+		}
+		Document document = new Document(uri, text, Json.getInt(params, "textDocument", "version"));
+		Document previous = documents.put(uri, document);
+		if (previous != null) {
+			synchronized (previous) {
+				previous.generation++;
+			}
+		}
+		synchronized (document) {
+			schedule(document, 0);
+		}
+	}
+
+	private void change(Object params) {
+		String uri = Json.getString(params, "textDocument", "uri");
+		Document document = uri != null ? documents.get(uri) : null;
+		Object changes = Json.get(params, "contentChanges");
+		if (document == null || !(changes instanceof List)) {
+			return;
+		}
+		synchronized (document) {
+			for (Object change : (List<?>) changes) {
+				String text = Json.getString(change, "text");
+				if (text == null) {
+					continue;
+				}
+				if (Json.get(change, "range") == null) {
+					document.text.setLength(0);
+					document.text.append(text);
+				} else {
+					int start = Positions.offset(document.text,
+							Json.getInt(change, "range", "start", "line"), Json.getInt(change, "range", "start", "character"));
+					int end = Positions.offset(document.text,
+							Json.getInt(change, "range", "end", "line"), Json.getInt(change, "range", "end", "character"));
+					document.text.replace(start, Math.max(start, end), text);
+				}
+			}
+			document.version = Json.getInt(params, "textDocument", "version");
+			document.generation++;
+			schedule(document, debounceMillis);
+		}
+	}
+
+	private void close(Object params) throws IOException {
+		String uri = Json.getString(params, "textDocument", "uri");
+		Document document = uri != null ? documents.remove(uri) : null;
+		if (document == null) {
+			return;
+		}
+		synchronized (document) {
+			document.generation++;
+			if (document.analysis != null) {
+				document.analysis.cancel(false);
+			}
+		}
+		publish(document.uri, -1, new ArrayList<>());
+	}
+
+	// chamado com o lock do documento; a análise agendada antes, se ainda não começou, nem roda
+	private void schedule(Document document, long delayMillis) {
+		if (document.analysis != null) {
+			document.analysis.cancel(false);
+		}
+		int generation = document.generation;
+		document.analysis = executor.schedule(() -> analyze(document, generation), delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void analyze(Document document, int generation) {
+		char[] source;
+		int version;
+		synchronized (document) {
+			if (document.generation != generation) {
+				return;
+			}
+			source = document.text.toString().toCharArray();
+			version = document.version;
+		}
+		TokenBuffer tokens = new Tokens(document, generation);
+		List<Object> diagnostics;
+		try {
+			diagnostics = diagnostics(source, Parser.diagnose(source, source.length, tokens, null), tokens);
+		} catch (Stale e) {
+			return;
+		} catch (Exception e) {
+			// a recuperação não deixa erros de compilação escaparem; isto é um erro interno
+			diagnostics = new ArrayList<>();
+			diagnostics.add(diagnostic(0, 0, 0, 0, "Erro interno do compilador: " + e));
+		}
+		synchronized (document) {
+			// publicado sob o lock: uma edição posterior não pode ser ultrapassada por este resultado
+			if (document.generation != generation) {
+				return;
+			}
+			try {
+				publish(document.uri, version, diagnostics);
+			} catch (IOException e) {
+				// o cliente fechou a saída; serve() termina ao ler o fim da entrada
+			}
+		}
+	}
+
+	private static List<Object> diagnostics(char[] source, List<Diagnostic> found, TokenBuffer tokens) {
+		Positions positions = new Positions(source, source.length);
+		List<Object> diagnostics = new ArrayList<>();
+		int[] starts = starts(tokens);
+		for (Diagnostic d : found) {
+			int start = positions.offset(d.getLine(), d.getColumn());
+			int end = Math.min(start + 1, source.length);
+			// o intervalo cobre o token que começa no erro, se houver um
+			int token = Arrays.binarySearch(starts, start);
+			if (token >= 0) {
+				end = Math.min(start + tokens.length(token), positions.lineEnd(start));
+			}
+			Map<String, Object> diagnostic = diagnostic(positions.line(start), positions.character(start),
+					positions.line(end), positions.character(end), d.getMessage());
+			diagnostic.put("code", d.getKind().name().toLowerCase());
+			diagnostics.add(diagnostic);
+		}
+		return diagnostics;
+	}
+
+	private static int[] starts(TokenBuffer tokens) {
+		int[] starts = new int[tokens.size()];
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] = tokens.start(i);
+		}
+		return starts;
+	}
+
+	private static Map<String, Object> diagnostic(int startLine, int startCharacter, int endLine, int endCharacter, String message) {
+		Map<String, Object> range = new LinkedHashMap<>();
+		range.put("start", position(startLine, startCharacter));
+		range.put("end", position(endLine, endCharacter));
+		Map<String, Object> diagnostic = new LinkedHashMap<>();
+		diagnostic.put("range", range);
+		diagnostic.put("severity", ERROR_SEVERITY);
+		diagnostic.put("source", "mini_compiler");
+		diagnostic.put("message", message);
+		return diagnostic;
+	}
+
+	private static Map<String, Object> position(int line, int character) {
+		Map<String, Object> position = new LinkedHashMap<>();
+		position.put("line", line);
+		position.put("character", character);
+		return position;
+	}
+
+	private void publish(String uri, int version, List<Object> diagnostics) throws IOException {
+		Map<String, Object> params = new LinkedHashMap<>();
+		params.put("uri", uri);
+		if (version >= 0) {
+			params.put("version", version);
+		}
+		params.put("diagnostics", diagnostics);
+		Map<String, Object> message = new LinkedHashMap<>();
+		message.put("jsonrpc", "2.0");
+		message.put("method", "textDocument/publishDiagnostics");
+		message.put("params", params);
+		send(message);
+	}
+
+	// só a análise léxica, no executor; se o documento mudar antes da resposta, o cliente pede de novo
+	private void semanticTokens(Object id, String uri) {
+		Document document = uri != null ? documents.get(uri) : null;
+		if (document == null) {
+			respondLater(id, tokensResult(new int[0]));
+			return;
+		}
+		executor.execute(() -> {
+			char[] source;
+			int generation;
+			synchronized (document) {
+				source = document.text.toString().toCharArray();
+				generation = document.generation;
+			}
+			int[] data;
+			try {
+				data = encode(source, new Tokens(document, generation));
+			} catch (Stale e) {
+				data = null;
+			}
+			try {
+				if (data == null || document.generation != generation) {
+					error(id, CONTENT_MODIFIED, "o documento mudou durante a análise");
+				} else {
+					respond(id, tokensResult(data));
+				}
+			} catch (IOException e) {
+				// o cliente fechou a saída
+			}
+		});
+	}
+
+	private void respondLater(Object id, Object result) {
+		executor.execute(() -> {
+			try {
+				respond(id, result);
+			} catch (IOException e) {
+				// o cliente fechou a saída
+			}
+		});
+	}
+
+	private static Map<String, Object> tokensResult(int[] data) {
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("data", data);
+		return result;
+	}
+
+	// cinco inteiros por token: linha e coluna relativas ao anterior, tamanho, tipo e modificadores
+	static int[] encode(char[] source, TokenBuffer tokens) {
+		// com a lista, a análise continua depois de um erro léxico
+		tokens.lex(source, source.length, ScannerEngine.SWITCH, new ArrayList<>());
+		Positions positions = new Positions(source, source.length);
+		int[] data = new int[tokens.size() * 5];
+		int size = 0;
+		int previousLine = 0;
+		int previousCharacter = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			int type = TOKEN_TYPE_OF[tokens.type(i).ordinal()];
+			if (type < 0) {
+				continue;
+			}
+			int start = tokens.start(i);
+			int line = positions.line(start);
+			int character = positions.character(start);
+			// uma cadeia com quebra de linha é marcada só até o fim da primeira linha
+			int length = Math.min(tokens.length(i), positions.lineEnd(start) - start);
+			data[size++] = line - previousLine;
+			data[size++] = line == previousLine ? character - previousCharacter : character;
+			data[size++] = length;
+			data[size++] = type;
+			data[size++] = 0;
+			previousLine = line;
+			previousCharacter = character;
+		}
+		return Arrays.copyOf(data, size);
+	}
+
+	private void respond(Object id, Object result) throws IOException {
+		Map<String, Object> message = new LinkedHashMap<>();
+		message.put("jsonrpc", "2.0");
+		message.put("id", id);
+		message.put("result", result);
+		send(message);
+	}
+
+	private void error(Object id, int code, String text) throws IOException {
+		Map<String, Object> error = new LinkedHashMap<>();
+		error.put("code", code);
+		error.put("message", text);
+		Map<String, Object> message = new LinkedHashMap<>();
+		message.put("jsonrpc", "2.0");
+		message.put("id", id);
+		message.put("error", error);
+		send(message);
+	}
+
+	// respostas saem da thread de leitura e das threads do executor
+	private void send(Map<String, Object> message) throws IOException {
+		byte[] body = Json.write(message).getBytes(StandardCharsets.UTF_8);
+		byte[] header = ("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+		synchronized (out) {
+			out.write(header);
+			out.write(body);
+			out.flush();
+		}
+	}
+
+	// próxima mensagem, ou null no fim da entrada
+	private String read() throws IOException {
+		int length = -1;
+		while (true) {
+			String line = readLine();
+			if (line == null) {
+				return null;
+			}
+			if (line.isEmpty()) {
+				if (length >= 0) {
+					break;
+				}
+				continue;
+			}
+			int colon = line.indexOf(':');
+			if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+				try {
+					length = Integer.parseInt(line.substring(colon + 1).trim());
+				} catch (NumberFormatException e) {
+					throw new IOException("Content-Length inválido: " + line);
+				}
+				if (length < 0) {
+					throw new IOException("Content-Length inválido: " + line);
+				}
+			}
+		}
+		byte[] body = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int n = in.read(body, read, length - read);
+			if (n < 0) {
+				throw new EOFException();
+			}
+			read += n;
+		}
+		return new String(body, StandardCharsets.UTF_8);
+	}
+
+	private String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII.name());
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+		}
+		return line.toString(StandardCharsets.US_ASCII.name());
+	}
+}
@@ -0,0 +1,109 @@
+package lsp;
+
+import java.util.Arrays;
+
+/*
+ * Conversão entre as posições do compilador e as do LSP, sempre passando pela
+ * posição absoluta no texto. O compilador conta linha e coluna a partir de 1 e
+ * trata cada '\r' e cada '\n' como uma quebra, como o LineIndex; o LSP conta a
+ * partir de 0 e "\r\n" é uma só quebra. Nos dois a coluna é contada em chars,
+ * a mesma unidade UTF-16 que o LSP usa por padrão.
+ */
+final class Positions {
+	private final int length;
+	private int[] compilerStarts = new int[16];
+	private int compilerLines;
+	private int[] lspStarts = new int[16];
+	private int lspLines;
+
+	Positions(char[] text, int length) {
+		this.length = length;
+		compilerStarts[compilerLines++] = 0;
+		lspStarts[lspLines++] = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text[i];
+			if (c == '\n' || c == '\r') {
+				compilerStarts = add(compilerStarts, compilerLines++, i + 1);
+				if (c == '\n' || i + 1 == length || text[i + 1] != '\n') {
+					lspStarts = add(lspStarts, lspLines++, i + 1);
+				}
+			}
+		}
+	}
+
+	private static int[] add(int[] starts, int index, int start) {
+		if (index == starts.length) {
+			starts = Arrays.copyOf(starts, index * 2);
+		}
+		starts[index] = start;
+		return starts;
+	}
+
+	// posição absoluta de uma linha e coluna do compilador, limitada ao texto
+	int offset(int line, int column) {
+		if (line < 1) {
+			return 0;
+		}
+		if (line > compilerLines) {
+			return length;
+		}
+		int offset = compilerStarts[line - 1] + Math.max(column, 1) - 1;
+		return Math.min(offset, length);
+	}
+
+	// linha do LSP, a partir de 0
+	int line(int offset) {
+		int low = 0;
+		int high = lspLines - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (lspStarts[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+	int character(int offset) {
+		return offset - lspStarts[line(offset)];
+	}
+
+	// fim da linha do LSP que contém offset, sem a quebra
+	int lineEnd(int offset) {
+		int line = line(offset);
+		if (line + 1 == lspLines) {
+			return length;
+		}
+		int end = lspStarts[line + 1] - 1;
+		// "\r\n": a quebra ocupa dois chars
+		if (end > lspStarts[line] && compilerStart(end)) {
+			end--;
+		}
+		return end;
+	}
+
+	private boolean compilerStart(int offset) {
+		return Arrays.binarySearch(compilerStarts, 0, compilerLines, offset) >= 0;
+	}
+
+	// posição absoluta de uma posição do LSP num texto que está sendo editado
+	static int offset(CharSequence text, int line, int character) {
+		int offset = 0;
+		int length = text.length();
+		for (int l = 0; l < line && offset < length; offset++) {
+			char c = text.charAt(offset);
+			if (c == '\n' || c == '\r' && (offset + 1 == length || text.charAt(offset + 1) != '\n')) {
+				l++;
+			}
+		}
+		for (int i = 0; i < character && offset < length; i++, offset++) {
+			char c = text.charAt(offset);
+			if (c == '\n' || c == '\r') {
+				break;
+			}
+		}
+		return offset;
+	}
+}
@@ -0,0 +1,37 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Um evento JFR por compilação medida, com os totais do CompileMetrics.
+@Name("mini_compiler.Compilation")
+@Label("Compilação")
+@Category("mini_compiler")
+@Description("Totais de uma compilação: tokens, tempo no Scanner, retrocessos e erros")
+class CompilationEvent extends Event {
+	@Label("Arquivo")
+	String name;
+
+	@Label("Tokens")
+	long tokens;
+
+	@Label("Caracteres lidos")
+	long chars;
+
+	@Label("Tempo no Scanner")
+	@Timespan(Timespan.NANOSECONDS)
+	long scanNanos;
+
+	@Label("Retrocessos do Scanner")
+	long backtracks;
+
+	@Label("Erros léxicos")
+	long lexicalErrors;
+
+	@Label("Erros sintáticos")
+	long syntacticErrors;
+}
@@ -0,0 +1,103 @@
+package metrics;
+
+import static lexical.LexicalErrorMessages.ERROR_COMMENT;
+import static lexical.LexicalErrorMessages.ERROR_INVALID_CHAR;
+import static lexical.LexicalErrorMessages.ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT;
+import static lexical.LexicalErrorMessages.ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT;
+import static lexical.LexicalErrorMessages.ERROR_REL_OPERATOR;
+import static lexical.LexicalErrorMessages.ERROR_STRING;
+import static lexical.LexicalErrorMessages.GENERIC_ERROR;
+
+import util.TokenType;
+
+/*
+ * Contadores de uma compilação. Pertence a um único Scanner/Parser, então
+ * não há sincronização; Metrics.finish() soma tudo no CompilerStats global.
+ * Os tempos das produções são inclusivos (expression inclui factor).
+ */
+public final class CompileMetrics {
+	public static final int PROGRAM = 0;
+	public static final int VAR_SECTION = 1;
+	public static final int VAR_DECLARATION = 2;
+	public static final int COMMAND = 3;
+	public static final int INPUT_STATEMENT = 4;
+	public static final int PRINT_STATEMENT = 5;
+	public static final int ASSIGNMENT = 6;
+	public static final int IF_STATEMENT = 7;
+	public static final int CONDITION = 8;
+	public static final int EXPRESSION = 9;
+	public static final int FACTOR = 10;
+
+	static final String[] PRODUCTIONS = {
+			"program", "varSection", "varDeclaration", "command", "inputStatement", "printStatement",
+			"assignment", "ifStatement", "condition", "expression", "factor",
+	};
+
+	static final String[] LEXICAL_ERRORS = {
+			GENERIC_ERROR, ERROR_INVALID_CHAR, ERROR_NUMBER_MISSING_NUMBER_AFTER_DOT,
+			ERROR_NUMBER_HAVING_EXTRA_DOT_AFTER_FLOAT, ERROR_COMMENT, ERROR_REL_OPERATOR, ERROR_STRING,
+	};
+
+	static final TokenType[] TYPES = TokenType.values();
+
+	final long[] tokens = new long[TYPES.length];
+	long scanNanos;
+	long chars;
+	long backtracks;
+	final long[] productionNanos = new long[PRODUCTIONS.length];
+	final long[] productionCalls = new long[PRODUCTIONS.length];
+	final long[] lexicalErrors = new long[LEXICAL_ERRORS.length];
+	long syntacticErrors;
+
+	final long start = System.nanoTime();
+	final CompilationEvent event;
+
+	CompileMetrics(CompilationEvent event) {
+		this.event = event;
+	}
+
+	// uma chamada de Scanner.scan(); type é o ordinal do TokenType, ou -1 no fim da entrada
+	public void scanned(int type, long nanos, long chars, int backtracks) {
+		if (type >= 0) {
+			tokens[type]++;
+		}
+		scanNanos += nanos;
+		this.chars += chars;
+		this.backtracks += backtracks;
+	}
+
+	public void lexicalError(String description) {
+		for (int i = 1; i < LEXICAL_ERRORS.length; i++) {
+			if (LEXICAL_ERRORS[i].equals(description)) {
+				lexicalErrors[i]++;
+				return;
+			}
+		}
+		lexicalErrors[0]++;
+	}
+
+	public void production(int production, long startNanos) {
+		productionNanos[production] += System.nanoTime() - startNanos;
+		productionCalls[production]++;
+	}
+
+	public void syntacticError() {
+		syntacticErrors++;
+	}
+
+	long tokenCount() {
+		long total = 0;
+		for (long count : tokens) {
+			total += count;
+		}
+		return total;
+	}
+
+	long lexicalErrorCount() {
+		long total = 0;
+		for (long count : lexicalErrors) {
+			total += count;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,152 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Implementação do MBean; cada compilação soma seus contadores de uma vez em merge().
+public class CompilerStats implements CompilerStatsMXBean {
+	public static final String OBJECT_NAME = "mini_compiler:type=CompilerStats";
+
+	private long compilations;
+	private long compileNanos;
+	private final long[] tokens = new long[CompileMetrics.TYPES.length];
+	private long scanNanos;
+	private long chars;
+	private long backtracks;
+	private final long[] productionNanos = new long[CompileMetrics.PRODUCTIONS.length];
+	private final long[] productionCalls = new long[CompileMetrics.PRODUCTIONS.length];
+	private final long[] lexicalErrors = new long[CompileMetrics.LEXICAL_ERRORS.length];
+	private long syntacticErrors;
+
+	// uma instância só, criada por Metrics
+	CompilerStats() {
+	}
+
+	synchronized void merge(CompileMetrics metrics, long nanos) {
+		compilations++;
+		compileNanos += nanos;
+		add(tokens, metrics.tokens);
+		scanNanos += metrics.scanNanos;
+		chars += metrics.chars;
+		backtracks += metrics.backtracks;
+		add(productionNanos, metrics.productionNanos);
+		add(productionCalls, metrics.productionCalls);
+		add(lexicalErrors, metrics.lexicalErrors);
+		syntacticErrors += metrics.syntacticErrors;
+	}
+
+	private static void add(long[] total, long[] values) {
+		for (int i = 0; i < total.length; i++) {
+			total[i] += values[i];
+		}
+	}
+
+	@Override
+	public synchronized long getCompilations() {
+		return compilations;
+	}
+
+	@Override
+	public synchronized long getCompileNanos() {
+		return compileNanos;
+	}
+
+	@Override
+	public synchronized long getTokens() {
+		long total = 0;
+		for (long count : tokens) {
+			total += count;
+		}
+		return total;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getTokensByType() {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (int i = 0; i < tokens.length; i++) {
+			map.put(CompileMetrics.TYPES[i].name(), tokens[i]);
+		}
+		return map;
+	}
+
+	@Override
+	public synchronized long getScanNanos() {
+		return scanNanos;
+	}
+
+	@Override
+	public synchronized long getCharsScanned() {
+		return chars;
+	}
+
+	@Override
+	public synchronized long getBacktracks() {
+		return backtracks;
+	}
+
+	@Override
+	public synchronized Map<String, Long> getProductionNanos() {
+		return toMap(CompileMetrics.PRODUCTIONS, productionNanos);
+	}
+
+	@Override
+	public synchronized Map<String, Long> getProductionCalls() {
+		return toMap(CompileMetrics.PRODUCTIONS, productionCalls);
+	}
+
+	@Override
+	public synchronized Map<String, Long> getLexicalErrorsByMessage() {
+		return toMap(CompileMetrics.LEXICAL_ERRORS, lexicalErrors);
+	}
+
+	@Override
+	public synchronized long getSyntacticErrors() {
+		return syntacticErrors;
+	}
+
+	@Override
+	public synchronized void reset() {
+		compilations = 0;
+		compileNanos = 0;
+		Arrays.fill(tokens, 0);
+		scanNanos = 0;
+		chars = 0;
+		backtracks = 0;
+		Arrays.fill(productionNanos, 0);
+		Arrays.fill(productionCalls, 0);
+		Arrays.fill(lexicalErrors, 0);
+		syntacticErrors = 0;
+	}
+
+	private static Map<String, Long> toMap(String[] names, long[] values) {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (int i = 0; i < names.length; i++) {
+			map.put(names[i], values[i]);
+		}
+		return map;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Compilações medidas: ").append(compilations)
+				.append(", tokens: ").append(getTokens())
+				.append(", caracteres: ").append(chars)
+				.append(", retrocessos: ").append(backtracks)
+				.append(", erros sintáticos: ").append(syntacticErrors).append('\n');
+		sb.append(String.format("Tempo total: %.1f ms, no Scanner: %.1f ms%n", compileNanos / 1e6, scanNanos / 1e6));
+		for (int i = 0; i < productionNanos.length; i++) {
+			if (productionCalls[i] > 0) {
+				sb.append(String.format("  %-16s %10d chamadas %10.1f ms%n",
+						CompileMetrics.PRODUCTIONS[i], productionCalls[i], productionNanos[i] / 1e6));
+			}
+		}
+		for (int i = 0; i < lexicalErrors.length; i++) {
+			if (lexicalErrors[i] > 0) {
+				sb.append("  ").append(lexicalErrors[i]).append("x ").append(CompileMetrics.LEXICAL_ERRORS[i]).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,30 @@
+package metrics;
+
+import java.util.Map;
+
+// Totais acumulados de todas as compilações medidas desde o último reset().
+public interface CompilerStatsMXBean {
+	long getCompilations();
+
+	long getCompileNanos();
+
+	long getTokens();
+
+	Map<String, Long> getTokensByType();
+
+	long getScanNanos();
+
+	long getCharsScanned();
+
+	long getBacktracks();
+
+	Map<String, Long> getProductionNanos();
+
+	Map<String, Long> getProductionCalls();
+
+	Map<String, Long> getLexicalErrorsByMessage();
+
+	long getSyntacticErrors();
+
+	void reset();
+}
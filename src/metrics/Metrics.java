@@ -0,0 +1,77 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * Ponto de entrada das métricas. Desligadas (o padrão), start() devolve null
+ * e Scanner e Parser só pagam um teste de null por token ou produção.
+ * Ligadas com -Dmini_compiler.metrics=true ou setEnabled(true), cada
+ * compilação é somada ao MBean mini_compiler:type=CompilerStats e gera um
+ * evento JFR mini_compiler.Compilation.
+ */
+public final class Metrics {
+	private static final CompilerStats STATS = new CompilerStats();
+	private static volatile boolean enabled;
+	private static boolean registered;
+
+	static {
+		if (Boolean.getBoolean("mini_compiler.metrics")) {
+			setEnabled(true);
+		}
+	}
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static synchronized void setEnabled(boolean enable) {
+		if (enable && !registered) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(STATS, new ObjectName(CompilerStats.OBJECT_NAME));
+			} catch (JMException e) {
+				throw new IllegalStateException("Não foi possível registrar " + CompilerStats.OBJECT_NAME, e);
+			}
+			registered = true;
+		}
+		enabled = enable;
+	}
+
+	public static CompilerStats stats() {
+		return STATS;
+	}
+
+	// contadores para uma nova compilação, ou null com as métricas desligadas
+	public static CompileMetrics start() {
+		if (!enabled) {
+			return null;
+		}
+		CompilationEvent event = new CompilationEvent();
+		event.begin();
+		return new CompileMetrics(event);
+	}
+
+	public static void finish(CompileMetrics metrics, String name) {
+		if (metrics == null) {
+			return;
+		}
+		STATS.merge(metrics, System.nanoTime() - metrics.start);
+		CompilationEvent event = metrics.event;
+		event.end();
+		if (event.shouldCommit()) {
+			event.name = name;
+			event.tokens = metrics.tokenCount();
+			event.chars = metrics.chars;
+			event.scanNanos = metrics.scanNanos;
+			event.backtracks = metrics.backtracks;
+			event.lexicalErrors = metrics.lexicalErrorCount();
+			event.syntacticErrors = metrics.syntacticErrors;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package mini_compiler;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Compila vários arquivos .mc numa só JVM. Cada arquivo usa seu próprio
+// Scanner/Parser; a divisão recursiva deixa o ForkJoinPool roubar trabalho
+// entre as threads quando alguns arquivos são bem maiores que outros.
+public class BatchCompiler {
+	private static final String EXTENSION = ".mc";
+
+	private final ForkJoinPool pool;
+	private final CompileCache cache;
+
+	public BatchCompiler(int parallelism) {
+		this(parallelism, null);
+	}
+
+	// com um cache, arquivos já compilados antes com o mesmo conteúdo não são analisados de novo
+	public BatchCompiler(int parallelism, CompileCache cache) {
+		this.pool = new ForkJoinPool(parallelism);
+		this.cache = cache;
+	}
+
+	public static List<String> collect(List<String> arguments) throws IOException {
+		List<String> files = new ArrayList<>();
+		for (String argument : arguments) {
+			if (isGlob(argument)) {
+				files.addAll(walk(globBase(argument), globMatcher(argument)));
+			} else if (Files.isDirectory(Paths.get(argument))) {
+				files.addAll(walk(Paths.get(argument), null));
+			} else {
+				files.add(argument);
+			}
+		}
+		return files;
+	}
+
+	private static boolean isGlob(String argument) {
+		return argument.indexOf('*') >= 0 || argument.indexOf('?') >= 0
+				|| argument.indexOf('[') >= 0 || argument.indexOf('{') >= 0;
+	}
+
+	// No glob do Java, **/ exige ao menos um diretório, e testes/**/*.mc deixaria
+	// de fora testes/a.mc. Como no shell, cada **/ também casa com nenhum
+	// diretório: o caminho precisa casar com uma das variantes do glob com e sem
+	// cada um deles.
+	private static PathMatcher globMatcher(String glob) {
+		List<String> variants = new ArrayList<>();
+		variants.add(glob);
+		for (int i = 0; i < variants.size(); i++) {
+			String variant = variants.get(i);
+			for (int at = variant.indexOf("**/"); at >= 0; at = variant.indexOf("**/", at + 1)) {
+				String shorter = variant.substring(0, at) + variant.substring(at + 3);
+				if (!variants.contains(shorter)) {
+					variants.add(shorter);
+				}
+			}
+		}
+		List<PathMatcher> matchers = new ArrayList<>();
+		for (String variant : variants) {
+			matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+		}
+		return path -> matchers.stream().anyMatch(m -> m.matches(path));
+	}
+
+	private static Path globBase(String glob) {
+		int end = glob.length();
+		for (int i = 0; i < glob.length(); i++) {
+			if ("*?[{".indexOf(glob.charAt(i)) >= 0) {
+				end = i;
+				break;
+			}
+		}
+		int separator = glob.lastIndexOf('/', end);
+		return Paths.get(separator < 0 ? "." : glob.substring(0, Math.max(separator, 1)));
+	}
+
+	private static List<String> walk(Path base, PathMatcher matcher) throws IOException {
+		if (!Files.isDirectory(base)) {
+			return Collections.emptyList();
+		}
+		try (Stream<Path> paths = Files.walk(base)) {
+			return paths
+					.filter(Files::isRegularFile)
+					.filter(p -> matcher != null ? matcher.matches(asWritten(base, p)) : p.toString().endsWith(EXTENSION))
+					.map(Path::toString)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static Path asWritten(Path base, Path path) {
+		// um glob relativo como "*.mc" não casa com "./x.mc"
+		return base.toString().equals(".") ? base.relativize(path) : path;
+	}
+
+	public CompilationResult[] compile(List<String> files) {
+		CompilationResult[] results = new CompilationResult[files.size()];
+		if (!files.isEmpty()) {
+			pool.invoke(new CompileTask(cache, files, results, 0, files.size()));
+		}
+		return results;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public static boolean report(CompilationResult[] results, long nanos, PrintStream out) {
+		Map<CompilationResult.Status, Integer> totals = new EnumMap<>(CompilationResult.Status.class);
+		for (CompilationResult result : results) {
+			totals.merge(result.getStatus(), 1, Integer::sum);
+			if (!result.isSuccess()) {
+				out.println(result);
+			}
+		}
+		out.printf("%d arquivo(s) em %d ms: %d ok, %d erro(s) léxico(s), %d erro(s) sintático(s), %d falha(s) de leitura, %d erro(s) interno(s)%n",
+				results.length, nanos / 1_000_000,
+				totals.getOrDefault(CompilationResult.Status.SUCCESS, 0),
+				totals.getOrDefault(CompilationResult.Status.LEXICAL_ERROR, 0),
+				totals.getOrDefault(CompilationResult.Status.SYNTACTIC_ERROR, 0),
+				totals.getOrDefault(CompilationResult.Status.IO_ERROR, 0),
+				totals.getOrDefault(CompilationResult.Status.INTERNAL_ERROR, 0));
+		return totals.getOrDefault(CompilationResult.Status.SUCCESS, 0) == results.length;
+	}
+
+	private static class CompileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CompileCache cache;
+		private final List<String> files;
+		private final CompilationResult[] results;
+		private final int from;
+		private final int to;
+
+		CompileTask(CompileCache cache, List<String> files, CompilationResult[] results, int from, int to) {
+			this.cache = cache;
+			this.files = files;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				String file = files.get(from);
+				results[from] = cache != null ? cache.compileFile(file) : CompilationResult.compileFile(file);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new CompileTask(cache, files, results, from, middle), new CompileTask(cache, files, results, middle, to));
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package mini_compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import exceptions.LexicalError;
+import exceptions.SyntacticException;
+import lexical.Scanner;
+import lexical.SourceReader;
+import metrics.CompileMetrics;
+import metrics.Metrics;
+import syntactic.Parser;
+
+public class CompilationResult {
+	public enum Status {
+		SUCCESS,
+		LEXICAL_ERROR,
+		SYNTACTIC_ERROR,
+		IO_ERROR,
+		INTERNAL_ERROR,
+	}
+
+	private final String name;
+	private final Status status;
+	private final String message;
+	private final int line;
+	private final int column;
+	private final long nanos;
+
+	public CompilationResult(String name, Status status, String message, int line, int column, long nanos) {
+		this.name = name;
+		this.status = status;
+		this.message = message;
+		this.line = line;
+		this.column = column;
+		this.nanos = nanos;
+	}
+
+	public static CompilationResult compileFile(String filename) {
+		long start = System.nanoTime();
+		// arquivos grandes são lidos por janela; o close() libera o mapeamento se a análise parar antes do fim
+		try (SourceReader reader = SourceReader.open(filename)) {
+			return compile(filename, reader);
+		} catch (IOException e) {
+			return new CompilationResult(filename, Status.IO_ERROR, e.toString(), -1, -1, System.nanoTime() - start);
+		}
+	}
+
+	public static CompilationResult compile(String name, SourceReader reader) {
+		long start = System.nanoTime();
+		Status status = Status.SUCCESS;
+		String message = null;
+		int line = -1;
+		int column = -1;
+		CompileMetrics metrics = Metrics.start();
+		try {
+			Scanner scanner = new Scanner(reader);
+			scanner.setMetrics(metrics);
+			Parser parser = new Parser(scanner);
+			parser.setMetrics(metrics);
+			parser.parse();
+		} catch (LexicalError e) {
+			status = Status.LEXICAL_ERROR;
+			message = e.getMessage();
+			line = e.getLine();
+			column = e.getColumn();
+		} catch (SyntacticException e) {
+			status = Status.SYNTACTIC_ERROR;
+			message = e.getMessage();
+			// 0 quando o erro não tem posição
+			if (e.getLine() > 0) {
+				line = e.getLine();
+				column = e.getColumn();
+			}
+		} catch (UncheckedIOException e) {
+			status = Status.IO_ERROR;
+			message = e.getCause().toString();
+		} catch (Exception | StackOverflowError e) {
+			// um arquivo patológico não pode derrubar o lote inteiro
+			status = Status.INTERNAL_ERROR;
+			message = e.toString();
+		} finally {
+			Metrics.finish(metrics, name);
+		}
+		return new CompilationResult(name, status, message, line, column, System.nanoTime() - start);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isSuccess() {
+		return status == Status.SUCCESS;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public String toJson() {
+		StringBuilder sb = new StringBuilder("{\"status\":\"").append(status).append('"');
+		if (message != null) {
+			sb.append(",\"message\":");
+			quote(sb, message);
+		}
+		if (line >= 0) {
+			sb.append(",\"line\":").append(line).append(",\"column\":").append(column);
+		}
+		return sb.append(",\"nanos\":").append(nanos).append('}').toString();
+	}
+
+	private static void quote(StringBuilder sb, String text) {
+		sb.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess() ? "OK    " + name : "ERRO  " + name + ": " + message;
+	}
+}
@@ -0,0 +1,340 @@
+package mini_compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import lexical.SourceReader;
+
+/*
+ * Cache em disco do resultado de compilação, indexado pelo SHA-256 do
+ * conteúdo do arquivo. Num acerto o arquivo não passa pelo Scanner nem pelo
+ * Parser: o status e o diagnóstico exato (mensagem, linha e coluna) vêm da
+ * entrada gravada. Falhas de leitura e erros internos não são gravados.
+ *
+ * Cada entrada é escrita num arquivo temporário no mesmo diretório e movida
+ * atomicamente para o nome final, então vários processos podem usar o mesmo
+ * diretório: quem lê vê a entrada inteira ou não vê nada, e duas gravações da
+ * mesma chave têm o mesmo conteúdo. Um acerto atualiza a data de modificação
+ * da entrada; quando o tamanho total passa do limite, as entradas mais antigas
+ * por essa data são apagadas (LRU aproximado) até sobrar 3/4 do limite.
+ * O tamanho conta o espaço em disco: cada entrada ocupa ao menos um bloco
+ * do sistema de arquivos, bem mais que os ~100 bytes do conteúdo. Os até 256
+ * diretórios do primeiro nível ficam fora da conta (no máximo 256 blocos).
+ */
+public class CompileCache {
+	public static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+	// entra no hash: entradas gravadas por uma versão com outras mensagens ou regras não são reaproveitadas
+	private static final String VERSION = "mini_compiler-cache-2";
+	private static final String TEMP_SUFFIX = ".tmp";
+	// temporários de processos que morreram no meio da gravação
+	private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+	// quando o sistema de arquivos não informa o tamanho do bloco
+	private static final long DEFAULT_BLOCK_SIZE = 4096;
+	// listagens interrompidas por outro processo apagando diretórios
+	private static final int WALK_ATTEMPTS = 3;
+
+	private final Path directory;
+	private final long maxBytes;
+	private final long blockSize;
+	private final AtomicLong size = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public CompileCache(Path directory, long maxBytes) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+		this.blockSize = blockSize(directory);
+		size.set(entries().stream().mapToLong(e -> e.size).sum());
+	}
+
+	/*
+	 * Arquivos até SourceReader.RESIDENT_LIMIT são lidos uma vez só, para o
+	 * hash e para a compilação. Os maiores passam pelo hash em blocos e são
+	 * compilados por janela, lendo o arquivo duas vezes; se ele mudar entre
+	 * as duas leituras o resultado não é gravado.
+	 */
+	public CompilationResult compileFile(String filename) {
+		long start = System.nanoTime();
+		Path path = Paths.get(filename);
+		byte[] content = null;
+		FileTime modified = null;
+		long length;
+		Path entry;
+		try {
+			length = Files.size(path);
+			if (length <= SourceReader.RESIDENT_LIMIT) {
+				content = Files.readAllBytes(path);
+				entry = entry(content);
+			} else {
+				modified = Files.getLastModifiedTime(path);
+				entry = entry(path);
+			}
+		} catch (IOException e) {
+			return new CompilationResult(filename, CompilationResult.Status.IO_ERROR, e.toString(), -1, -1, System.nanoTime() - start);
+		}
+		CompilationResult cached = read(entry, filename, start);
+		if (cached != null) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		misses.incrementAndGet();
+		CompilationResult result = content != null
+				? CompilationResult.compile(filename, SourceReader.fromBytes(content))
+				: CompilationResult.compileFile(filename);
+		if (result.getStatus() != CompilationResult.Status.IO_ERROR
+				&& result.getStatus() != CompilationResult.Status.INTERNAL_ERROR
+				&& (content != null || unchanged(path, length, modified))) {
+			write(entry, result);
+		}
+		return result;
+	}
+
+	private static boolean unchanged(Path path, long length, FileTime modified) {
+		try {
+			return Files.size(path) == length && Files.getLastModifiedTime(path).equals(modified);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private Path entry(byte[] content) {
+		MessageDigest digest = digest();
+		digest.update(content);
+		return entry(digest);
+	}
+
+	private Path entry(Path file) throws IOException {
+		MessageDigest digest = digest();
+		byte[] buffer = new byte[SourceReader.DEFAULT_WINDOW];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return entry(digest);
+	}
+
+	private static MessageDigest digest() {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// toda JVM tem SHA-256
+			throw new IllegalStateException(e);
+		}
+		digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+		return digest;
+	}
+
+	private Path entry(MessageDigest digest) {
+		byte[] hash = digest.digest();
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		// dois níveis, para nenhum diretório ficar com entradas demais
+		return directory.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+	}
+
+	private CompilationResult read(Path entry, String filename, long start) {
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(entry);
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// ainda não gravada, ou despejada por outro processo no meio da leitura
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			CompilationResult.Status status = CompilationResult.Status.valueOf(in.readUTF());
+			int line = in.readInt();
+			int column = in.readInt();
+			String message = null;
+			int length = in.readInt();
+			if (length >= 0) {
+				byte[] text = new byte[length];
+				in.readFully(text);
+				message = new String(text, StandardCharsets.UTF_8);
+			}
+			return new CompilationResult(filename, status, message, line, column, System.nanoTime() - start);
+		} catch (IOException | IllegalArgumentException e) {
+			// entrada truncada ou de outro formato: recompila e regrava por cima
+			return null;
+		}
+	}
+
+	private void write(Path entry, CompilationResult result) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeUTF(result.getStatus().name());
+			out.writeInt(result.getLine());
+			out.writeInt(result.getColumn());
+			if (result.getMessage() == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] text = result.getMessage().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(text.length);
+				out.write(text);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		Path temp = null;
+		try {
+			Files.createDirectories(entry.getParent());
+			temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), TEMP_SUFFIX);
+			Files.write(temp, bytes.toByteArray());
+			try {
+				Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+		} catch (IOException e) {
+			// sem cache a compilação continua correta; só não fica gravada
+			return;
+		} finally {
+			if (temp != null) {
+				try {
+					Files.deleteIfExists(temp);
+				} catch (IOException ignored) {
+					// o próximo evict() apaga
+				}
+			}
+		}
+		if (size.addAndGet(onDisk(bytes.size())) > maxBytes) {
+			evict();
+		}
+	}
+
+	private synchronized void evict() {
+		if (size.get() <= maxBytes) {
+			return;
+		}
+		List<Entry> entries;
+		try {
+			entries = entries();
+		} catch (IOException e) {
+			return;
+		}
+		long total = entries.stream().mapToLong(e -> e.size).sum();
+		entries.sort(Comparator.comparingLong(e -> e.modified));
+		long target = maxBytes - maxBytes / 4;
+		for (Entry e : entries) {
+			if (total <= target) {
+				break;
+			}
+			try {
+				Files.deleteIfExists(e.path);
+			} catch (IOException ignored) {
+				// outro processo pode estar despejando a mesma entrada
+			}
+			total -= e.size;
+		}
+		size.set(total);
+	}
+
+	private static class Entry {
+		final Path path;
+		final long size;
+		final long modified;
+
+		Entry(Path path, long size, long modified) {
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+		}
+	}
+
+	private static long blockSize(Path directory) {
+		try {
+			long block = Files.getFileStore(directory).getBlockSize();
+			return block > 0 ? block : DEFAULT_BLOCK_SIZE;
+		} catch (IOException | UnsupportedOperationException e) {
+			return DEFAULT_BLOCK_SIZE;
+		}
+	}
+
+	// espaço ocupado por um arquivo de length bytes: arredondado para blocos inteiros, no mínimo um
+	private long onDisk(long length) {
+		return Math.max(1, (length + blockSize - 1) / blockSize) * blockSize;
+	}
+
+	/*
+	 * Files.walk lança UncheckedIOException quando outro processo apaga um
+	 * diretório no meio da listagem; a listagem recomeça algumas vezes antes
+	 * de desistir com a IOException original.
+	 */
+	private List<Entry> entries() throws IOException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return walk();
+			} catch (UncheckedIOException e) {
+				if (attempt == WALK_ATTEMPTS) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+
+	private List<Entry> walk() throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		try (Stream<Path> paths = Files.walk(directory, 2)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				try {
+					if (!Files.isRegularFile(path)) {
+						continue;
+					}
+					long modified = Files.getLastModifiedTime(path).toMillis();
+					if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+						if (now - modified > STALE_TEMP_MILLIS) {
+							Files.deleteIfExists(path);
+						}
+						continue;
+					}
+					entries.add(new Entry(path, onDisk(Files.size(path)), modified));
+				} catch (NoSuchFileException e) {
+					// apagada por outro processo durante a listagem
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Override
+	public String toString() {
+		return "cache: " + hits.get() + " acerto(s), " + misses.get() + " falha(s)";
+	}
+}
@@ -0,0 +1,143 @@
+package mini_compiler;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lexical.SourceReader;
+
+/*
+ * Modo daemon: aceita conexões apenas em loopback e compila o código recebido,
+ * mantendo a JVM (e o JIT já aquecido) entre as requisições.
+ *
+ * Protocolo, por requisição: uma linha com o tamanho em bytes do código-fonte,
+ * seguida dos bytes em UTF-8. A resposta é uma linha JSON com o resultado.
+ * Uma conexão pode enviar várias requisições em sequência, mas ocupa uma
+ * thread enquanto está aberta; por isso uma conexão parada por mais de
+ * IDLE_TIMEOUT_MILLIS (entre requisições ou no meio de uma) é fechada.
+ */
+public class CompileServer {
+	public static final int DEFAULT_PORT = 7373;
+	private static final int MAX_REQUEST_BYTES = 16 * 1024 * 1024;
+	// dígitos de um int com folga para espaços
+	private static final int MAX_LENGTH_LINE = 32;
+	private static final int IDLE_TIMEOUT_MILLIS = 10_000;
+	private static final String BUSY = "{\"status\":\"BUSY\"}";
+
+	private static final String WARMUP_SOURCE = "main {\n var {\n x:int;\n y:float;\n }\n"
+			+ " # aquecimento\n input(x);\n y <- (x + 1.5) * 2 / 3 - x;\n"
+			+ " if (x > 1 E y <= 2 OU x != 3) then {\n print(\"ok\");\n x <- x - 1;\n }\n print(y);\n}\n";
+
+	private final ServerSocket server;
+	private final ThreadPoolExecutor workers;
+
+	public CompileServer(int port, int threads, int queueCapacity) throws IOException {
+		server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		// fila limitada: quando enche, a conexão recebe BUSY em vez de esperar sem limite
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	public static void warmUp(int iterations) {
+		byte[] valid = WARMUP_SOURCE.getBytes(StandardCharsets.UTF_8);
+		byte[] lexical = (WARMUP_SOURCE + " @").getBytes(StandardCharsets.UTF_8);
+		byte[] syntactic = WARMUP_SOURCE.replace("then", "").getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < iterations; i++) {
+			CompilationResult.compile("warmup", SourceReader.fromBytes(valid));
+			CompilationResult.compile("warmup", SourceReader.fromBytes(lexical));
+			CompilationResult.compile("warmup", SourceReader.fromBytes(syntactic));
+		}
+	}
+
+	public void serve() throws IOException {
+		while (!server.isClosed()) {
+			Socket socket = server.accept();
+			try {
+				workers.execute(() -> handle(socket));
+			} catch (RejectedExecutionException e) {
+				reject(socket);
+			}
+		}
+	}
+
+	public void close() throws IOException {
+		server.close();
+		workers.shutdown();
+	}
+
+	private void handle(Socket socket) {
+		try (Socket s = socket) {
+			s.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			OutputStream out = s.getOutputStream();
+			while (true) {
+				int length = readLength(in);
+				if (length < 0) {
+					return;
+				}
+				if (length > MAX_REQUEST_BYTES) {
+					respond(out, "{\"status\":\"IO_ERROR\",\"message\":\"requisição maior que o limite\"}");
+					return;
+				}
+				byte[] source = new byte[length];
+				in.readFully(source);
+				respond(out, CompilationResult.compile("request", SourceReader.fromBytes(source)).toJson());
+			}
+		} catch (IOException e) {
+			// cliente desconectou ou ficou parado além do tempo limite
+		}
+	}
+
+	private static int readLength(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != '\n') {
+			if (b < 0) {
+				if (line.size() == 0) {
+					return -1;
+				}
+				throw new EOFException();
+			}
+			if (b != '\r') {
+				if (line.size() == MAX_LENGTH_LINE) {
+					throw new IOException("linha de tamanho longa demais");
+				}
+				line.write(b);
+			}
+		}
+		try {
+			return Integer.parseInt(line.toString(StandardCharsets.US_ASCII.name()).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("tamanho inválido: " + line);
+		}
+	}
+
+	private static void respond(OutputStream out, String json) throws IOException {
+		out.write((json + "\n").getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private static void reject(Socket socket) {
+		try (Socket s = socket) {
+			respond(s.getOutputStream(), BUSY);
+		} catch (IOException e) {
+			// nada a fazer: o cliente já foi embora
+		}
+	}
+}
@@ -1,11 +1,32 @@
 package mini_compiler;
 
-import exceptions.SyntacticException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import codegen.CodeGenerator;
+import exceptions.ErrorMode;
+import interpreter.RegisterCompiler;
 import lexical.Scanner;
-import lexical.Token;
+import lexical.SourceReader;
+import lexical.TokenBuffer;
+import lsp.LanguageServer;
+import metrics.Metrics;
+import optimizer.ConstantFolder;
+import runtime.ConsoleIO;
+import runtime.McProgram;
+import semantic.ProgramInfo;
+import semantic.SymbolTable;
+import syntactic.Ast;
 import syntactic.Parser;
+import util.Diagnostic;
 
 public class Main {
+	private static final String BATCH_USAGE = "Uso: java mini_compiler.Main [--threads N] [--metrics] [--cache DIR [--cache-size MB]] <arquivo | diretório | glob>...";
+	private static final String SERVER_USAGE = "Uso: java mini_compiler.Main --server [porta]";
+
 	/*
 	* GRUPO:
 	*
@@ -16,6 +37,26 @@ public class Main {
 	* THIAGO VASCONCELOS
 	* */
 	public static void main(String[] args) {
+		// erros de compilação são mostrados só pela mensagem
+		ErrorMode.setCaptureStackTraces(false);
+		if (args.length > 0 && (args[0].equals("--run") || args[0].equals("--interpret"))) {
+			System.exit(run(args.length > 1 ? args[1] : "programa.mc", args[0].equals("--interpret")) ? 0 : 1);
+		}
+		if (args.length > 0 && args[0].equals("--check")) {
+			System.exit(check(args.length > 1 ? args[1] : "programa.mc") ? 0 : 1);
+		}
+		if (args.length > 0 && args[0].equals("--optimize")) {
+			System.exit(optimize(args.length > 1 ? args[1] : "programa.mc") ? 0 : 1);
+		}
+		if (args.length > 0 && args[0].equals("--server")) {
+			System.exit(server(args) ? 0 : 1);
+		}
+		if (args.length > 0 && args[0].equals("--lsp")) {
+			System.exit(lsp() ? 0 : 1);
+		}
+		if (args.length > 0) {
+			System.exit(batch(args) ? 0 : 1);
+		}
 		Scanner sc = new Scanner("programa.mc");
 		try {
 			Parser parser = new Parser(sc);
@@ -25,4 +66,181 @@ public class Main {
 			System.out.println(e.getMessage());
 		}
 	}
+
+	// java mini_compiler.Main --run [arquivo]
+	// java mini_compiler.Main --interpret [arquivo]
+	private static boolean run(String filename, boolean interpret) {
+		ConsoleIO io = new ConsoleIO();
+		try {
+			SourceReader source = SourceReader.fromFile(filename);
+			McProgram program = interpret
+					? RegisterCompiler.compile(source.chars(), source.length())
+					: CodeGenerator.compile(source.chars(), source.length());
+			program.run(io);
+			return true;
+		} catch (RuntimeException e) {
+			System.out.println("Erro de execução: " + e.getMessage());
+			return false;
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			return false;
+		} finally {
+			io.flush();
+		}
+	}
+
+	// java mini_compiler.Main --check [arquivo]: todos os erros de uma vez
+	private static boolean check(String filename) {
+		try {
+			SourceReader source = SourceReader.fromFile(filename);
+			List<Diagnostic> diagnostics = Parser.diagnose(source.chars(), source.length());
+			for (Diagnostic diagnostic : diagnostics) {
+				System.out.println(diagnostic);
+			}
+			if (diagnostics.isEmpty()) {
+				System.out.println("Compilation successful");
+			}
+			return diagnostics.isEmpty();
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			return false;
+		}
+	}
+
+	// java mini_compiler.Main --optimize [arquivo]
+	private static boolean optimize(String filename) {
+		try {
+			SourceReader source = SourceReader.fromFile(filename);
+			TokenBuffer tokens = new TokenBuffer();
+			tokens.lex(source.chars(), source.length());
+			Ast ast = new Ast();
+			SymbolTable symbols = new SymbolTable(tokens);
+			new Parser(tokens, ast, symbols).parse();
+			ConstantFolder folder = new ConstantFolder(tokens, ast, ProgramInfo.of(tokens, ast, symbols));
+			Ast folded = folder.fold();
+			System.out.println(folder);
+			System.out.println(folded.dump(tokens));
+			return true;
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			return false;
+		}
+	}
+
+	// java mini_compiler.Main --server [porta]
+	private static boolean server(String[] args) {
+		int port = args.length > 1 ? positive("porta", args[1], 65535, SERVER_USAGE) : CompileServer.DEFAULT_PORT;
+		if (port < 0) {
+			return false;
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			CompileServer.warmUp(2_000);
+			CompileServer server = new CompileServer(port, threads, threads * 4);
+			System.out.println("Servidor de compilação em 127.0.0.1:" + server.getPort());
+			server.serve();
+			return true;
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			return false;
+		}
+	}
+
+	// java mini_compiler.Main --lsp: servidor de linguagem para editores, na entrada e saída padrão
+	private static boolean lsp() {
+		// a saída padrão é do protocolo; qualquer outra mensagem vai para a saída de erro
+		try {
+			return new LanguageServer(System.in, System.out, Runtime.getRuntime().availableProcessors()).serve();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return false;
+		}
+	}
+
+	// java mini_compiler.Main [--threads N] [--metrics] [--cache DIR [--cache-size MB]] <arquivo | diretório | glob>...
+	private static boolean batch(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<String> inputs = new ArrayList<>(Arrays.asList(args));
+		int flag = inputs.indexOf("--threads");
+		if (flag >= 0) {
+			threads = positive("--threads", value(inputs, flag), Integer.MAX_VALUE, BATCH_USAGE);
+			if (threads < 0) {
+				return false;
+			}
+			inputs.subList(flag, flag + 2).clear();
+		}
+		if (inputs.remove("--metrics")) {
+			Metrics.setEnabled(true);
+		}
+		long cacheBytes = CompileCache.DEFAULT_MAX_BYTES;
+		flag = inputs.indexOf("--cache-size");
+		if (flag >= 0) {
+			int megabytes = positive("--cache-size", value(inputs, flag), Integer.MAX_VALUE, BATCH_USAGE);
+			if (megabytes < 0) {
+				return false;
+			}
+			cacheBytes = (long) megabytes << 20;
+			inputs.subList(flag, flag + 2).clear();
+		}
+		CompileCache cache = null;
+		flag = inputs.indexOf("--cache");
+		if (flag >= 0) {
+			if (value(inputs, flag) == null) {
+				System.out.println("Falta o valor de --cache");
+				System.out.println(BATCH_USAGE);
+				return false;
+			}
+			try {
+				cache = new CompileCache(Paths.get(inputs.get(flag + 1)), cacheBytes);
+			} catch (IOException e) {
+				System.out.println("Cache indisponível: " + e);
+			}
+			inputs.subList(flag, flag + 2).clear();
+		}
+
+		BatchCompiler compiler = new BatchCompiler(threads, cache);
+		try {
+			List<String> files = BatchCompiler.collect(inputs);
+			long start = System.nanoTime();
+			CompilationResult[] results = compiler.compile(files);
+			boolean ok = BatchCompiler.report(results, System.nanoTime() - start, System.out);
+			if (cache != null) {
+				System.out.println(cache);
+			}
+			if (Metrics.isEnabled()) {
+				System.out.print(Metrics.stats());
+			}
+			return ok;
+		} catch (Exception e) {
+			System.out.println(e.getMessage());
+			return false;
+		} finally {
+			compiler.shutdown();
+		}
+	}
+
+	// o argumento depois da opção em flag, ou null se ela for a última
+	private static String value(List<String> inputs, int flag) {
+		return flag + 1 < inputs.size() ? inputs.get(flag + 1) : null;
+	}
+
+	// valor de uma opção numérica entre 1 e max, ou -1 depois de mostrar o uso correto
+	private static int positive(String option, String value, int max, String usage) {
+		if (value == null) {
+			System.out.println("Falta o valor de " + option);
+			System.out.println(usage);
+			return -1;
+		}
+		try {
+			int number = Integer.parseInt(value);
+			if (number > 0 && number <= max) {
+				return number;
+			}
+		} catch (NumberFormatException e) {
+			// cai na mensagem abaixo
+		}
+		System.out.println("Valor inválido para " + option + ": " + value);
+		System.out.println(usage);
+		return -1;
+	}
 }
@@ -5,4 +5,9 @@
  * 
  */
 module mini_compiler {
-}
\ No newline at end of file
+	requires java.management;
+	requires jdk.jfr;
+
+	exports metrics;
+	exports runtime;
+}
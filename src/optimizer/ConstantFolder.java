@@ -0,0 +1,311 @@
+package optimizer;
+
+import java.util.Arrays;
+
+import lexical.TokenBuffer;
+import semantic.ProgramInfo;
+import syntactic.Ast;
+import util.TokenType;
+
+/*
+ * Dobra expressões cujos operandos são todos constantes e elimina ifs de
+ * condição constante: o corpo de um if sempre verdadeiro passa para o bloco
+ * que o contém e um if sempre falso desaparece.
+ *
+ * Os valores dobrados são os mesmos da execução: aritmética int com
+ * overflow, promoção para float onde o ProgramInfo promove e comparações
+ * float falsas com NaN. Divisão inteira por zero não é dobrada, e uma
+ * subcondição só é descartada se não puder lançar essa exceção.
+ *
+ * A Ast original não muda. A primeira passada é linear (os nós estão em
+ * pós-ordem, então os filhos são vistos antes do pai); a segunda copia para
+ * uma nova Ast o que sobrou, com pilha explícita para não estourar a pilha
+ * da JVM em cadeias longas como a + b + c + ...
+ */
+public class ConstantFolder {
+	private static final int DYNAMIC = 0;
+	private static final int TRUE = 1;
+	private static final int FALSE = 2;
+
+	private static final int INT = ProgramInfo.INT;
+	private static final int FLOAT = ProgramInfo.FLOAT;
+
+	private final TokenBuffer tokens;
+	private final Ast ast;
+	private final ProgramInfo info;
+
+	// por nó da Ast original
+	private boolean[] constant;
+	private int[] values; // int ou bits do float, conforme info.type(node)
+	private int[] truth;
+	private boolean[] mayThrow;
+	private int[] forward; // condição E/OU que se reduz a um dos lados
+
+	private int foldedExpressions;
+	private int foldedConditions;
+	private int removedBranches;
+	private int inlinedBranches;
+	private int nodesBefore;
+	private int nodesAfter;
+
+	public ConstantFolder(TokenBuffer tokens, Ast ast, ProgramInfo info) {
+		this.tokens = tokens;
+		this.ast = ast;
+		this.info = info;
+	}
+
+	public Ast fold() {
+		return fold(new Ast(ast.size()));
+	}
+
+	public Ast fold(Ast target) {
+		analyze();
+		target.clear();
+		copy(target);
+		nodesBefore = ast.size();
+		nodesAfter = target.size();
+		constant = null;
+		values = null;
+		truth = null;
+		mayThrow = null;
+		forward = null;
+		return target;
+	}
+
+	public int getFoldedExpressions() {
+		return foldedExpressions;
+	}
+
+	public int getFoldedConditions() {
+		return foldedConditions;
+	}
+
+	public int getRemovedBranches() {
+		return removedBranches;
+	}
+
+	public int getInlinedBranches() {
+		return inlinedBranches;
+	}
+
+	public int getRemovedNodes() {
+		return nodesBefore - nodesAfter;
+	}
+
+	@Override
+	public String toString() {
+		return "Nós: " + nodesBefore + " -> " + nodesAfter + " (" + getRemovedNodes() + " removidos); "
+				+ foldedExpressions + " expressões e " + foldedConditions + " condições constantes; "
+				+ removedBranches + " ifs removidos, " + inlinedBranches + " ifs substituídos pelo corpo";
+	}
+
+	private void analyze() {
+		int size = ast.size();
+		constant = new boolean[size];
+		values = new int[size];
+		truth = new int[size];
+		mayThrow = new boolean[size];
+		forward = new int[size];
+		Arrays.fill(forward, -1);
+
+		for (int node = 0; node < size; node++) {
+			switch (ast.kind(node)) {
+				case Ast.INTEGER:
+				case Ast.INT_CONSTANT:
+					constant[node] = true;
+					values[node] = info.intValue(node);
+					break;
+				case Ast.FLOAT:
+				case Ast.FLOAT_CONSTANT:
+					constant[node] = true;
+					values[node] = Float.floatToRawIntBits(info.floatValue(node));
+					break;
+				case Ast.BINARY:
+					binary(node);
+					break;
+				case Ast.RELATIONAL:
+					relational(node);
+					break;
+				case Ast.LOGICAL:
+					logical(node);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private void binary(int node) {
+		int left = ast.child(node, 0);
+		int right = ast.child(node, 1);
+		char op = tokens.text(ast.token(node)).charAt(0);
+		boolean intDivision = op == '/' && info.type(node) == INT;
+		if (constant[left] && constant[right] && !(intDivision && values[right] == 0)) {
+			constant[node] = true;
+			if (info.type(node) == FLOAT) {
+				float a = floatOf(left);
+				float b = floatOf(right);
+				values[node] = Float.floatToRawIntBits(op == '+' ? a + b : op == '-' ? a - b : op == '*' ? a * b : a / b);
+			} else {
+				int a = values[left];
+				int b = values[right];
+				values[node] = op == '+' ? a + b : op == '-' ? a - b : op == '*' ? a * b : a / b;
+			}
+			foldedExpressions++;
+			return;
+		}
+		mayThrow[node] = mayThrow[left] || mayThrow[right]
+				|| (intDivision && !(constant[right] && values[right] != 0));
+	}
+
+	private void relational(int node) {
+		int left = ast.child(node, 0);
+		int right = ast.child(node, 1);
+		if (!constant[left] || !constant[right]) {
+			mayThrow[node] = mayThrow[left] || mayThrow[right];
+			return;
+		}
+		String op = tokens.text(ast.token(node));
+		boolean result;
+		if (info.type(left) == FLOAT || info.type(right) == FLOAT) {
+			float a = floatOf(left);
+			float b = floatOf(right);
+			result = compare(op, a < b, a <= b, a > b, a >= b, a == b);
+		} else {
+			int a = values[left];
+			int b = values[right];
+			result = compare(op, a < b, a <= b, a > b, a >= b, a == b);
+		}
+		truth[node] = result ? TRUE : FALSE;
+		foldedConditions++;
+	}
+
+	private static boolean compare(String op, boolean lt, boolean le, boolean gt, boolean ge, boolean eq) {
+		switch (op) {
+			case "<":
+				return lt;
+			case "<=":
+				return le;
+			case ">":
+				return gt;
+			case ">=":
+				return ge;
+			case "=":
+			case "==":
+				return eq;
+			default:
+				return !eq;
+		}
+	}
+
+	private void logical(int node) {
+		int left = ast.child(node, 0);
+		int right = ast.child(node, 1);
+		int a = truthOf(left);
+		int b = truthOf(right);
+		// E: falso absorve, verdadeiro é neutro; OU: o contrário
+		int absorbing = tokens.type(ast.token(node)) == TokenType.AND_OPERATOR ? FALSE : TRUE;
+
+		if (a == absorbing) {
+			truth[node] = absorbing;
+		} else if (a != DYNAMIC) {
+			// lado esquerdo neutro: vale o direito
+			truth[node] = b;
+			forward[node] = right;
+		} else if (b == DYNAMIC) {
+			mayThrow[node] = mayThrow[left] || mayThrow[right];
+			return;
+		} else if (b != absorbing) {
+			truth[node] = DYNAMIC;
+			forward[node] = left;
+			mayThrow[node] = mayThrow[left];
+			return;
+		} else if (!mayThrow[left]) {
+			truth[node] = absorbing;
+		} else {
+			// o lado esquerdo ainda precisa ser avaliado pela exceção que pode lançar
+			mayThrow[node] = true;
+			return;
+		}
+		if (truth[node] != DYNAMIC) {
+			foldedConditions++;
+		} else {
+			mayThrow[node] = mayThrow[right];
+		}
+	}
+
+	private int truthOf(int node) {
+		int kind = ast.kind(node);
+		if (kind == Ast.RELATIONAL || kind == Ast.LOGICAL) {
+			return truth[node];
+		}
+		if (!constant[node]) {
+			return DYNAMIC;
+		}
+		boolean nonZero = info.type(node) == FLOAT ? Float.intBitsToFloat(values[node]) != 0 : values[node] != 0;
+		return nonZero ? TRUE : FALSE;
+	}
+
+	private float floatOf(int node) {
+		return info.type(node) == FLOAT ? Float.intBitsToFloat(values[node]) : (float) values[node];
+	}
+
+	private void copy(Ast target) {
+		int[] nodes = new int[64];
+		int[] next = new int[64]; // próximo filho a copiar
+		int[] marks = new int[64]; // -1 quando o nó só repassa os filhos (if sempre verdadeiro)
+		int depth = 0;
+
+		int pending = ast.root();
+		while (true) {
+			if (pending >= 0) {
+				int node = pending;
+				pending = -1;
+				while (forward[node] >= 0) {
+					node = forward[node];
+				}
+				int kind = ast.kind(node);
+				int mark = target.mark();
+				if (constant[node]) {
+					target.leaf(info.type(node) == FLOAT ? Ast.FLOAT_CONSTANT : Ast.INT_CONSTANT, values[node]);
+				} else if ((kind == Ast.RELATIONAL || kind == Ast.LOGICAL) && truth[node] != DYNAMIC) {
+					// condição constante que ainda precisa existir: 1 ou 0 valem como verdadeiro ou falso
+					target.leaf(Ast.INT_CONSTANT, truth[node] == TRUE ? 1 : 0);
+				} else if (kind == Ast.IF && truthOf(ast.child(node, 0)) == FALSE) {
+					removedBranches++;
+				} else if (ast.childCount(node) == 0) {
+					target.leaf(kind, ast.token(node));
+				} else {
+					if (depth == nodes.length) {
+						nodes = Arrays.copyOf(nodes, depth * 2);
+						next = Arrays.copyOf(next, depth * 2);
+						marks = Arrays.copyOf(marks, depth * 2);
+					}
+					if (kind == Ast.IF && truthOf(ast.child(node, 0)) == TRUE) {
+						inlinedBranches++;
+						node = ast.child(node, 1);
+						mark = -1;
+					}
+					nodes[depth] = node;
+					next[depth] = 0;
+					marks[depth] = mark;
+					depth++;
+				}
+			}
+
+			if (depth == 0) {
+				return;
+			}
+			int top = depth - 1;
+			int node = nodes[top];
+			if (next[top] < ast.childCount(node)) {
+				pending = ast.child(node, next[top]++);
+			} else {
+				if (marks[top] >= 0) {
+					target.close(ast.kind(node), ast.token(node), marks[top]);
+				}
+				depth--;
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.StringTokenizer;
+
+public class ConsoleIO implements ProgramIO {
+	private final BufferedReader in;
+	private final PrintStream out;
+	private StringTokenizer line;
+
+	public ConsoleIO() {
+		this(System.in, System.out);
+	}
+
+	public ConsoleIO(InputStream in, OutputStream out) {
+		this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		this.out = new PrintStream(out, false);
+	}
+
+	@Override
+	public int readInt() {
+		String value = next();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Entrada não é um inteiro: " + value);
+		}
+	}
+
+	@Override
+	public float readFloat() {
+		String value = next();
+		try {
+			return Float.parseFloat(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Entrada não é um número: " + value);
+		}
+	}
+
+	@Override
+	public void print(String text) {
+		out.println(text);
+	}
+
+	@Override
+	public void print(int value) {
+		out.println(value);
+	}
+
+	@Override
+	public void print(float value) {
+		out.println(value);
+	}
+
+	@Override
+	public void flush() {
+		out.flush();
+	}
+
+	private String next() {
+		// o que já foi impresso precisa aparecer antes de esperar pela entrada
+		out.flush();
+		try {
+			while (line == null || !line.hasMoreTokens()) {
+				String read = in.readLine();
+				if (read == null) {
+					throw new IllegalArgumentException("Fim da entrada durante input");
+				}
+				line = new StringTokenizer(read);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return line.nextToken();
+	}
+}
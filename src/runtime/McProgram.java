@@ -0,0 +1,6 @@
+package runtime;
+
+// implementada pelas classes geradas pelo codegen
+public interface McProgram {
+	void run(ProgramIO io);
+}
@@ -0,0 +1,17 @@
+package runtime;
+
+// entrada e saída usadas por input(...) e print(...)
+public interface ProgramIO {
+	int readInt();
+
+	float readFloat();
+
+	void print(String text);
+
+	void print(int value);
+
+	void print(float value);
+
+	default void flush() {
+	}
+}
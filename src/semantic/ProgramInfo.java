@@ -0,0 +1,156 @@
+package semantic;
+
+import exceptions.SemanticException;
+import lexical.TokenBuffer;
+import syntactic.Ast;
+import util.TokenType;
+
+/*
+ * Resultado da verificação semântica de uma Ast: variáveis declaradas, com
+ * índice e tipo, a variável referida por cada nó (INPUT, ASSIGNMENT,
+ * IDENTIFIER, VAR_DECLARATION) e o tipo de cada nó de expressão. Os back-ends
+ * usam só esses arrays, sem procurar nomes.
+ *
+ * Os nós da Ast estão em pós-ordem, então uma passada linear declara as
+ * variáveis antes do bloco de comandos e encontra os filhos de cada
+ * expressão já tipados.
+ */
+public final class ProgramInfo {
+	public static final int INT = SymbolTable.INT;
+	public static final int FLOAT = SymbolTable.FLOAT;
+
+	private final TokenBuffer tokens;
+	private final Ast ast;
+	private final SymbolTable symbols;
+
+	private final int[] variables;
+	private final int[] types;
+
+	private ProgramInfo(TokenBuffer tokens, Ast ast, SymbolTable symbols) {
+		this.tokens = tokens;
+		this.ast = ast;
+		this.symbols = symbols;
+		this.variables = new int[ast.size()];
+		this.types = new int[ast.size()];
+	}
+
+	// declara e resolve os nomes da Ast, verificando as regras semânticas
+	public static ProgramInfo check(TokenBuffer tokens, Ast ast) throws SemanticException {
+		ProgramInfo info = new ProgramInfo(tokens, ast, new SymbolTable(tokens));
+		info.check();
+		return info;
+	}
+
+	/*
+	 * Para uma Ast cujos nomes o Parser já resolveu e verificou em symbols
+	 * (inclusive uma Ast derivada dela, como a do ConstantFolder): só monta os
+	 * arrays por nó, sem procurar nomes.
+	 */
+	public static ProgramInfo of(TokenBuffer tokens, Ast ast, SymbolTable symbols) {
+		ProgramInfo info = new ProgramInfo(tokens, ast, symbols);
+		info.layout();
+		return info;
+	}
+
+	public int variableCount() {
+		return symbols.size();
+	}
+
+	public int variableType(int variable) {
+		return symbols.type(variable);
+	}
+
+	public String variableName(int variable) {
+		return symbols.name(variable);
+	}
+
+	// índice da variável declarada ou referida pelo nó
+	public int variable(int node) {
+		return variables[node];
+	}
+
+	// INT ou FLOAT para nós de expressão, 0 para os demais
+	public int type(int node) {
+		return types[node];
+	}
+
+	// valor de um nó INTEGER ou INT_CONSTANT
+	public int intValue(int node) {
+		if (ast.kind(node) == Ast.INT_CONSTANT) {
+			return ast.token(node);
+		}
+		return Integer.parseInt(tokens.text(ast.token(node)));
+	}
+
+	// valor de um nó FLOAT ou FLOAT_CONSTANT
+	public float floatValue(int node) {
+		if (ast.kind(node) == Ast.FLOAT_CONSTANT) {
+			return Float.intBitsToFloat(ast.token(node));
+		}
+		return Float.parseFloat(tokens.text(ast.token(node)));
+	}
+
+	private void check() throws SemanticException {
+		for (int node = 0; node < ast.size(); node++) {
+			int token = ast.token(node);
+			switch (ast.kind(node)) {
+				case Ast.VAR_DECLARATION:
+					variables[node] = symbols.declare(token,
+							tokens.type(ast.token(ast.child(node, 0))) == TokenType.FLOATING_DATA_TYPE ? FLOAT : INT);
+					break;
+				case Ast.INPUT:
+					variables[node] = symbols.resolve(token);
+					break;
+				case Ast.ASSIGNMENT:
+					variables[node] = symbols.assign(token, types[ast.child(node, 0)]);
+					break;
+				case Ast.IDENTIFIER:
+					variables[node] = symbols.resolve(token);
+					types[node] = symbols.type(variables[node]);
+					break;
+				case Ast.INTEGER:
+					symbols.checkInteger(token);
+					types[node] = INT;
+					break;
+				default:
+					types[node] = expressionType(node);
+					break;
+			}
+		}
+	}
+
+	private void layout() {
+		for (int node = 0; node < ast.size(); node++) {
+			switch (ast.kind(node)) {
+				case Ast.VAR_DECLARATION:
+				case Ast.INPUT:
+				case Ast.ASSIGNMENT:
+					variables[node] = symbols.reference(ast.token(node));
+					break;
+				case Ast.IDENTIFIER:
+					variables[node] = symbols.reference(ast.token(node));
+					types[node] = symbols.type(variables[node]);
+					break;
+				default:
+					types[node] = expressionType(node);
+					break;
+			}
+		}
+	}
+
+	// tipo dos nós de expressão que não dependem de nomes
+	private int expressionType(int node) {
+		switch (ast.kind(node)) {
+			case Ast.INTEGER:
+			case Ast.INT_CONSTANT:
+				return INT;
+			case Ast.FLOAT:
+			case Ast.FLOAT_CONSTANT:
+				return FLOAT;
+			case Ast.BINARY:
+				return Math.max(types[ast.child(node, 0)], types[ast.child(node, 1)]);
+			default:
+				return 0;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package semantic;
+
+import java.util.Arrays;
+
+import exceptions.SemanticException;
+import lexical.TokenBuffer;
+
+/*
+ * Variáveis declaradas, numeradas na ordem de declaração (0, 1, 2...), e a
+ * variável a que cada token de um TokenBuffer se refere. Os nomes nunca viram
+ * String: a tabela é de endereçamento aberto, com sondagem linear, sobre os
+ * trechos do código-fonte; cada posição guarda o número da variável + 1 e o
+ * hash do nome, e a comparação é feita com os chars do token da declaração.
+ *
+ * O Parser preenche a tabela na mesma passada em que reconhece o programa
+ * (declarações em varSection(), referências em assignment(), inputStatement()
+ * e factor()); ProgramInfo.of() só lê o resultado.
+ */
+public final class SymbolTable {
+	public static final int INT = 1;
+	public static final int FLOAT = 2;
+
+	private final TokenBuffer tokens;
+	private final char[] source;
+
+	// endereçamento aberto: número da variável + 1 (0 = livre) e hash do nome
+	private int[] table = new int[16];
+	private int[] hashes = new int[16];
+
+	private int count;
+	private int[] types = new int[8];
+	private int[] declarations = new int[8];
+
+	// por token: número da variável + 1, ou 0 se o token não foi resolvido
+	private final int[] references;
+
+	public SymbolTable(TokenBuffer tokens) {
+		this.tokens = tokens;
+		this.source = tokens.source();
+		this.references = new int[tokens.size()];
+	}
+
+	// declara o identificador do token com o tipo dado e devolve o número da variável
+	public int declare(int token, int type) throws SemanticException {
+		int hash = hash(token);
+		int index = find(token, hash);
+		if (table[index] != 0) {
+			throw error("Variável já declarada: ", token);
+		}
+		if (count == types.length) {
+			types = Arrays.copyOf(types, count * 2);
+			declarations = Arrays.copyOf(declarations, count * 2);
+		}
+		types[count] = type;
+		declarations[count] = token;
+		table[index] = count + 1;
+		hashes[index] = hash;
+		references[token] = count + 1;
+		count++;
+		if (count * 2 > table.length) {
+			grow();
+		}
+		return count - 1;
+	}
+
+	// variável a que o identificador do token se refere
+	public int resolve(int token) throws SemanticException {
+		int variable = table[find(token, hash(token))] - 1;
+		if (variable < 0) {
+			throw error("Variável não declarada: ", token);
+		}
+		references[token] = variable + 1;
+		return variable;
+	}
+
+	// resolve o alvo de uma atribuição cujo valor tem o tipo dado
+	public int assign(int token, int valueType) throws SemanticException {
+		int variable = resolve(token);
+		if (types[variable] == INT && valueType == FLOAT) {
+			throw error("Atribuição de valor float à variável int: ", token);
+		}
+		return variable;
+	}
+
+	// constantes inteiras precisam caber num int
+	public void checkInteger(int token) throws SemanticException {
+		int start = tokens.start(token);
+		int length = tokens.length(token);
+		long value = 0;
+		for (int i = 0; i < length; i++) {
+			value = value * 10 + (source[start + i] - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error("Constante inteira fora do intervalo: ", token);
+			}
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int type(int variable) {
+		return types[variable];
+	}
+
+	public String name(int variable) {
+		return tokens.text(declarations[variable]);
+	}
+
+	// variável resolvida para o token por declare() ou resolve(), ou -1
+	public int reference(int token) {
+		return references[token] - 1;
+	}
+
+	private int hash(int token) {
+		int start = tokens.start(token);
+		int end = start + tokens.length(token);
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	// posição do nome na tabela, ou a posição livre onde ele entraria
+	private int find(int token, int hash) {
+		int mask = table.length - 1;
+		int index = hash & mask;
+		while (table[index] != 0) {
+			if (hashes[index] == hash && sameName(declarations[table[index] - 1], token)) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return index;
+	}
+
+	private boolean sameName(int a, int b) {
+		int length = tokens.length(a);
+		if (tokens.length(b) != length) {
+			return false;
+		}
+		int startA = tokens.start(a);
+		int startB = tokens.start(b);
+		for (int i = 0; i < length; i++) {
+			if (source[startA + i] != source[startB + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void grow() {
+		int[] oldTable = table;
+		int[] oldHashes = hashes;
+		table = new int[oldTable.length * 2];
+		hashes = new int[oldTable.length * 2];
+		int mask = table.length - 1;
+		for (int i = 0; i < oldTable.length; i++) {
+			if (oldTable[i] != 0) {
+				int index = oldHashes[i] & mask;
+				while (table[index] != 0) {
+					index = (index + 1) & mask;
+				}
+				table[index] = oldTable[i];
+				hashes[index] = oldHashes[i];
+			}
+		}
+	}
+
+	private SemanticException error(String message, int token) {
+		return new SemanticException(message + tokens.text(token), tokens.line(token), tokens.column(token));
+	}
+}
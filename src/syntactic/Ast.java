@@ -0,0 +1,195 @@
+package syntactic;
+
+import java.util.Arrays;
+
+import lexical.TokenBuffer;
+
+/*
+ * Árvore sintática guardada numa arena de arrays de int: para cada nó, o tipo,
+ * o índice do token que o originou e a faixa dos seus filhos no array
+ * children. Os nós são criados em pós-ordem pelo Parser: cada produção
+ * marca a pilha de nós prontos, reconhece os filhos e fecha o nó com os que
+ * foram empilhados desde a marca. A raiz é o último nó criado.
+ *
+ * clear() descarta a árvore sem liberar os arrays, para reaproveitar a arena.
+ *
+ * INT_CONSTANT e FLOAT_CONSTANT não vêm do Parser: são valores calculados
+ * pelo otimizador e guardam no lugar do índice do token o próprio valor (o
+ * int, ou os bits do float).
+ */
+public class Ast {
+	public static final int PROGRAM = 0;
+	public static final int VAR_SECTION = 1;
+	public static final int VAR_DECLARATION = 2;
+	public static final int TYPE = 3;
+	public static final int BLOCK = 4;
+	public static final int INPUT = 5;
+	public static final int PRINT = 6;
+	public static final int ASSIGNMENT = 7;
+	public static final int IF = 8;
+	public static final int BINARY = 9;
+	public static final int RELATIONAL = 10;
+	public static final int LOGICAL = 11;
+	public static final int IDENTIFIER = 12;
+	public static final int INTEGER = 13;
+	public static final int FLOAT = 14;
+	public static final int STRING = 15;
+	public static final int INT_CONSTANT = 16;
+	public static final int FLOAT_CONSTANT = 17;
+
+	private static final String[] NAMES = {
+			"PROGRAM", "VAR_SECTION", "VAR_DECLARATION", "TYPE", "BLOCK", "INPUT", "PRINT", "ASSIGNMENT",
+			"IF", "BINARY", "RELATIONAL", "LOGICAL", "IDENTIFIER", "INTEGER", "FLOAT", "STRING",
+			"INT_CONSTANT", "FLOAT_CONSTANT",
+	};
+
+	private int count;
+	private int[] kinds;
+	private int[] tokens;
+	private int[] firstChild;
+	private int[] childCounts;
+
+	private int childrenSize;
+	private int[] children;
+
+	// nós já fechados que ainda esperam pelo pai
+	private int stackSize;
+	private int[] stack;
+
+	public Ast() {
+		this(256);
+	}
+
+	public Ast(int capacity) {
+		capacity = Math.max(capacity, 16);
+		kinds = new int[capacity];
+		tokens = new int[capacity];
+		firstChild = new int[capacity];
+		childCounts = new int[capacity];
+		children = new int[capacity];
+		stack = new int[64];
+	}
+
+	public void clear() {
+		count = 0;
+		childrenSize = 0;
+		stackSize = 0;
+	}
+
+	public int mark() {
+		return stackSize;
+	}
+
+	public int close(int kind, int token, int mark) {
+		if (count == kinds.length) {
+			int capacity = count * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			tokens = Arrays.copyOf(tokens, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			childCounts = Arrays.copyOf(childCounts, capacity);
+		}
+		int childCount = stackSize - mark;
+		if (childrenSize + childCount > children.length) {
+			children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + childCount));
+		}
+		System.arraycopy(stack, mark, children, childrenSize, childCount);
+
+		int node = count++;
+		kinds[node] = kind;
+		tokens[node] = token;
+		firstChild[node] = childrenSize;
+		childCounts[node] = childCount;
+		childrenSize += childCount;
+
+		stackSize = mark;
+		if (stackSize == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		stack[stackSize++] = node;
+		return node;
+	}
+
+	// descarta os nós abertos desde mark, quando o Parser se recupera de um erro
+	public void discard(int mark) {
+		stackSize = mark;
+	}
+
+	public int leaf(int kind, int token) {
+		return close(kind, token, stackSize);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int root() {
+		return count - 1;
+	}
+
+	public int kind(int node) {
+		return kinds[node];
+	}
+
+	public int token(int node) {
+		return tokens[node];
+	}
+
+	public int childCount(int node) {
+		return childCounts[node];
+	}
+
+	public int child(int node, int index) {
+		return children[firstChild[node] + index];
+	}
+
+	public static String kindName(int kind) {
+		return NAMES[kind];
+	}
+
+	// representação em s-expressão, útil para depuração e comparação
+	public String dump(TokenBuffer buffer) {
+		StringBuilder sb = new StringBuilder();
+		if (count > 0) {
+			dump(root(), buffer, sb);
+		}
+		return sb.toString();
+	}
+
+	// pilha de (nó, próximo filho) no lugar da recursão, como no Parser
+	private void dump(int node, TokenBuffer buffer, StringBuilder sb) {
+		int[] stack = new int[32];
+		int top = 0;
+		open(node, buffer, sb);
+		stack[top++] = node;
+		stack[top++] = 0;
+		while (top > 0) {
+			int current = stack[top - 2];
+			int next = stack[top - 1];
+			if (next < childCounts[current]) {
+				stack[top - 1]++;
+				int child = child(current, next);
+				sb.append(' ');
+				open(child, buffer, sb);
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[top++] = child;
+				stack[top++] = 0;
+			} else {
+				sb.append(')');
+				top -= 2;
+			}
+		}
+	}
+
+	private void open(int node, TokenBuffer buffer, StringBuilder sb) {
+		sb.append('(').append(NAMES[kinds[node]]);
+		if (kinds[node] == INT_CONSTANT) {
+			sb.append(' ').append(tokens[node]);
+		} else if (kinds[node] == FLOAT_CONSTANT) {
+			sb.append(' ').append(Float.intBitsToFloat(tokens[node]));
+		} else if (buffer != null && tokens[node] >= 0 && tokens[node] < buffer.size()) {
+			sb.append(' ').append(buffer.text(tokens[node]));
+		}
+	}
+}
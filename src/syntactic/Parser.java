@@ -1,76 +1,262 @@
 package syntactic;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import exceptions.SemanticException;
 import exceptions.SyntacticException;
 import lexical.Scanner;
-import lexical.Token;
+import lexical.ScannerEngine;
+import lexical.ScannerTokenSource;
+import lexical.TokenBuffer;
+import lexical.TokenSource;
+import metrics.CompileMetrics;
+import semantic.SymbolTable;
+import util.Diagnostic;
+import util.Operator;
 import util.TokenType;
 
 
 public class Parser {
-	private Scanner scanner;	
-	private Token token;
+	// precedência de cada código de Operator; 0 para o que não é operador
+	private static final int LOGICAL = 1;
+	private static final int RELATIONAL = 2;
+	private static final int ADDITIVE = 3;
+	private static final int MULTIPLICATIVE = 4;
+	private static final int[] PRECEDENCE = new int[Operator.COUNT];
+
+	static {
+		PRECEDENCE[Operator.AND] = LOGICAL;
+		PRECEDENCE[Operator.OR] = LOGICAL;
+		for (int op = Operator.EQUAL; op <= Operator.GREATER_EQUAL; op++) {
+			PRECEDENCE[op] = RELATIONAL;
+		}
+		PRECEDENCE[Operator.ADD] = ADDITIVE;
+		PRECEDENCE[Operator.SUBTRACT] = ADDITIVE;
+		PRECEDENCE[Operator.MULTIPLY] = MULTIPLICATIVE;
+		PRECEDENCE[Operator.DIVIDE] = MULTIPLICATIVE;
+	}
+
+	// ifs abertos, IF_FRAME ints por if: marca do comando, token do if, token do '{' e marca do bloco
+	private static final int IF_FRAME = 4;
+	private static final int IF_MARK = 0;
+	private static final int IF_KEYWORD = 1;
+	private static final int IF_BRACE = 2;
+	private static final int IF_BLOCK = 3;
+
+	// quadros de binary() abaixo do topo, FRAME ints por quadro
+	private static final int FRAME = 8;
+	private static final int MIN = 0;
+	private static final int MARK = 1;
+	private static final int THEN = 2;
+	private static final int TYPE = 3;
+	private static final int LAST = 4;
+	private static final int PENDING = 5;
+	private static final int OPERATOR = 6;
+	private static final int RIGHT = 7;
+	// o que fazer quando o quadro terminar: devolver o tipo a quem chamou binary(),
+	// fechar o '(' de um fator, fechar o '(' de uma condição depois de E/OU, ou
+	// fechar o operador que está esperando no quadro de baixo
+	private static final int RETURN = 0;
+	private static final int PAREN = 1;
+	private static final int GROUP = 2;
+	private static final int COMBINE = 3;
+
+	private TokenSource tokens;
+	private Ast ast;
+	// não nulo no modo de recuperação
+	private List<Diagnostic> diagnostics;
+	// não nulo quando a verificação semântica acontece junto com a sintática
+	private SymbolTable symbols;
+	private CompileMetrics metrics;
+
+	// pilhas explícitas no lugar da recursão; em ifStarts e starts, os inícios medidos (2 por if, 3 por quadro)
+	private int[] ifs = new int[IF_FRAME * 8];
+	private long[] ifStarts = new long[2 * 8];
+	private int ifCount;
+	private int[] frames = new int[FRAME * 8];
+	private long[] starts = new long[3 * 8];
+	private int frameCount;
 
 	public Parser(Scanner scanner) throws Exception {
-		this.scanner = scanner;
-		token = this.scanner.nextToken();
+		this(new ScannerTokenSource(scanner));
+	}
+
+	public Parser(TokenSource tokens) throws Exception {
+		this.tokens = tokens;
+		this.tokens.advance();
+	}
+
+	// com uma Ast, o Parser também monta a árvore enquanto reconhece a entrada
+	public Parser(TokenSource tokens, Ast ast) throws Exception {
+		this(tokens);
+		this.ast = ast;
+	}
+
+	/*
+	 * Modo de recuperação: em vez de parar no primeiro erro, registra o
+	 * diagnóstico, descarta tokens até um ponto de sincronização (';' ou '}')
+	 * e continua no próximo comando ou declaração.
+	 */
+	public Parser(TokenSource tokens, Ast ast, List<Diagnostic> diagnostics) throws Exception {
+		this(tokens, ast, null, diagnostics);
+	}
+
+	/*
+	 * Com uma SymbolTable (sobre o mesmo TokenBuffer), as declarações são
+	 * registradas e cada identificador usado é resolvido para sua variável na
+	 * mesma passada, com tipos de expressão e erros semânticos verificados ao
+	 * longo do caminho. No modo de recuperação os erros semânticos também
+	 * viram diagnósticos.
+	 */
+	public Parser(TokenSource tokens, Ast ast, SymbolTable symbols) throws Exception {
+		this(tokens, ast, symbols, null);
+	}
+
+	public Parser(TokenSource tokens, Ast ast, SymbolTable symbols, List<Diagnostic> diagnostics) throws Exception {
+		this(tokens, ast);
+		this.symbols = symbols;
+		this.diagnostics = diagnostics;
+	}
+
+	// todos os erros léxicos, sintáticos e semânticos do código-fonte, em ordem de posição
+	public static List<Diagnostic> diagnose(char[] source, int length) throws Exception {
+		return diagnose(source, length, new TokenBuffer(), null);
+	}
+
+	public static List<Diagnostic> diagnose(char[] source, int length, TokenBuffer tokens, Ast ast) throws Exception {
+		List<Diagnostic> diagnostics = new ArrayList<>();
+		tokens.lex(source, length, ScannerEngine.SWITCH, diagnostics);
+		new Parser(tokens, ast, new SymbolTable(tokens), diagnostics).parse();
+		diagnostics.sort(Comparator.comparingInt(Diagnostic::getLine).thenComparingInt(Diagnostic::getColumn));
+		return diagnostics;
+	}
+
+	// tempo e chamadas por produção; null (o padrão) desliga a medição
+	public void setMetrics(CompileMetrics metrics) {
+		this.metrics = metrics;
 	}
 
 	public void parse() throws Exception {
-		program();
+		try {
+			program();
+		} catch (SyntacticException e) {
+			if (diagnostics == null) {
+				throw e;
+			}
+			report(e);
+		}
 	}
 
 	public void program() throws Exception {
+		long start = enter();
+		int mark = mark();
+		int main = tokens.index();
 		match(TokenType.MAIN_FUNCTION); 
+		int brace = tokens.index();
 		match(TokenType.LEFT_BRACE);    
 
-		if (token != null && token.getType() == TokenType.VARIABLE_DECLARATION) {
+		if (current() == TokenType.VARIABLE_DECLARATION) {
 			varSection();
 		}
+		int block = mark();
 		commandList();
+		close(Ast.BLOCK, brace, block);
 		match(TokenType.RIGHT_BRACE);   
+		close(Ast.PROGRAM, main, mark);
+		exit(CompileMetrics.PROGRAM, start);
 	}
 
 	private void varSection() throws Exception {
+		long start = enter();
+		int mark = mark();
+		int var = tokens.index();
 		match(TokenType.VARIABLE_DECLARATION); 
 		match(TokenType.LEFT_BRACE);           
 		varDeclarationList();
 		match(TokenType.RIGHT_BRACE);          
+		close(Ast.VAR_SECTION, var, mark);
+		exit(CompileMetrics.VAR_SECTION, start);
 	}
 
 	private void varDeclarationList() throws Exception {
-		while (token != null && token.getType() == TokenType.IDENTIFIER) {
-			varDeclaration();
+		while (current() == TokenType.IDENTIFIER) {
+			int mark = mark();
+			try {
+				varDeclaration();
+			} catch (SyntacticException e) {
+				recover(e, mark);
+			}
 		}
 	}
 
 	private void varDeclaration() throws Exception {
+		long start = enter();
+		int mark = mark();
+		int name = tokens.index();
 		match(TokenType.IDENTIFIER);
 		match(TokenType.COLON);
-		type();
+		int type = type();
 		match(TokenType.SEMICOLON);
+		close(Ast.VAR_DECLARATION, name, mark);
+		declare(name, type);
+		exit(CompileMetrics.VAR_DECLARATION, start);
 	}
 
-	private void type() throws Exception {
-		if (token != null && (token.getType() == TokenType.INTEGER_DATA_TYPE || 
-			token.getType() == TokenType.FLOATING_DATA_TYPE)) {
-			token = scanner.nextToken();
+	private int type() throws Exception {
+		if (current() == TokenType.INTEGER_DATA_TYPE || 
+			current() == TokenType.FLOATING_DATA_TYPE) {
+			int type = current() == TokenType.FLOATING_DATA_TYPE ? SymbolTable.FLOAT : SymbolTable.INT;
+			leaf(Ast.TYPE);
+			tokens.advance();
+			return type;
 		} else {
-			throw new SyntacticException("Esperado tipo (int ou float), mas encontrado " + 
-			(token != null ? token.getType() + "(" + token.getText() + ")" : "EOF"));
+			TokenType found = current();
+			throw error(text -> "Esperado tipo (int ou float), mas encontrado " + 
+			(found != null ? found + "(" + text + ")" : "EOF"));
 		}
 	}
 
+	/*
+	 * Sem recursão: um if aberto vai para a pilha ifs e os comandos do seu
+	 * bloco são reconhecidos neste mesmo laço; o if é fechado quando aparece o
+	 * '}' ou o fim da entrada. A profundidade de aninhamento fica limitada só
+	 * pela memória. Os erros são tratados como na versão recursiva: os do
+	 * bloco, pelo próprio bloco; os do cabeçalho ou do '}' de um if, pelo
+	 * bloco que contém o if.
+	 */
 	private void commandList() throws Exception {
-		while (token != null && token.getType() != TokenType.RIGHT_BRACE) {
-			command();
+		int base = ifCount;
+		while (true) {
+			if (current() != null && current() != TokenType.RIGHT_BRACE) {
+				int mark = mark();
+				try {
+					command();
+				} catch (SyntacticException e) {
+					recover(e, mark);
+				}
+			} else if (ifCount > base) {
+				int mark = ifs[(ifCount - 1) * IF_FRAME + IF_MARK];
+				try {
+					closeIf();
+				} catch (SyntacticException e) {
+					recover(e, mark);
+				}
+			} else {
+				return;
+			}
 		}
 	}
 
 	private void command() throws Exception {
-		if (token == null) {
+		long start = enter();
+		if (current() == null) {
 			return;
 		}
-		switch (token.getType()) {
+		switch (current()) {
 			case INPUT_STATEMENT:
 				inputStatement();
 				break;
@@ -78,153 +264,482 @@ public class Parser {
 				printStatement();
 				break;
 			case CONDITIONAL_IF_STATEMENT:
-				ifStatement();
-				break;
+				// o comando só termina quando closeIf() fechar o bloco
+				openIf(start);
+				return;
 			case IDENTIFIER:
 				assignment();
 				break;
 			default:
-				throw new SyntacticException("Comando inesperado: " + token.getType() + "(" + token.getText() + ")");
+				TokenType found = current();
+				throw error(text -> "Comando inesperado: " + found + "(" + text + ")");
 		}
+		exit(CompileMetrics.COMMAND, start);
 	}
 
 	private void inputStatement() throws Exception {
+		long start = enter();
 		match(TokenType.INPUT_STATEMENT);
 		match(TokenType.LEFT_PAREN);
+		int name = tokens.index();
+		leaf(Ast.INPUT);
 		match(TokenType.IDENTIFIER);
+		reference(name);
 		match(TokenType.RIGHT_PAREN);
 		match(TokenType.SEMICOLON);
+		exit(CompileMetrics.INPUT_STATEMENT, start);
 	}
 
 	private void printStatement() throws Exception {
+		long start = enter();
+		int mark = mark();
+		int print = tokens.index();
 		match(TokenType.PRINT_STATEMENT);
 		match(TokenType.LEFT_PAREN);
 
-		if (token != null && token.getType() == TokenType.STRING) {
-			token = scanner.nextToken();
+		if (current() == TokenType.STRING) {
+			leaf(Ast.STRING);
+			tokens.advance();
 		} else {
 			expression();
 		}
 
 		match(TokenType.RIGHT_PAREN);
 		match(TokenType.SEMICOLON);
+		close(Ast.PRINT, print, mark);
+		exit(CompileMetrics.PRINT_STATEMENT, start);
 	}
 
 	private void assignment() throws Exception {
+		long start = enter();
+		int mark = mark();
+		int name = tokens.index();
 		match(TokenType.IDENTIFIER);
 		match(TokenType.ASSIGNMENT_OPERATOR);
-		expression();
+		int type = expression();
 		match(TokenType.SEMICOLON);
+		close(Ast.ASSIGNMENT, name, mark);
+		assign(name, type);
+		exit(CompileMetrics.ASSIGNMENT, start);
 	}
 
-	private void ifStatement() throws Exception {
+	// cabeçalho do if até o '{'; o bloco continua no laço de commandList()
+	private void openIf(long commandStart) throws Exception {
+		long start = enter();
+		int mark = mark();
+		int keyword = tokens.index();
 		match(TokenType.CONDITIONAL_IF_STATEMENT);
 		condition();
 		match(TokenType.DO_STATEMENT);
+		int brace = tokens.index();
 		match(TokenType.LEFT_BRACE);
-		commandList();
+		if (ifCount * IF_FRAME == ifs.length) {
+			ifs = Arrays.copyOf(ifs, ifs.length * 2);
+			ifStarts = Arrays.copyOf(ifStarts, ifStarts.length * 2);
+		}
+		int f = ifCount * IF_FRAME;
+		ifs[f + IF_MARK] = mark;
+		ifs[f + IF_KEYWORD] = keyword;
+		ifs[f + IF_BRACE] = brace;
+		ifs[f + IF_BLOCK] = mark();
+		ifStarts[ifCount * 2] = commandStart;
+		ifStarts[ifCount * 2 + 1] = start;
+		ifCount++;
+	}
+
+	private void closeIf() throws Exception {
+		ifCount--;
+		int f = ifCount * IF_FRAME;
+		close(Ast.BLOCK, ifs[f + IF_BRACE], ifs[f + IF_BLOCK]);
 		match(TokenType.RIGHT_BRACE);
+		close(Ast.IF, ifs[f + IF_KEYWORD], ifs[f + IF_MARK]);
+		exit(CompileMetrics.IF_STATEMENT, ifStarts[ifCount * 2 + 1]);
+		exit(CompileMetrics.COMMAND, ifStarts[ifCount * 2]);
 	}
 
 	private void condition() throws Exception {
-		if (token != null && token.getType() == TokenType.LEFT_PAREN) {
+		long start = enter();
+		if (current() == TokenType.LEFT_PAREN) {
 			match(TokenType.LEFT_PAREN);
-			conditionExpression();
+			binary(LOGICAL);
 			match(TokenType.RIGHT_PAREN);
 		} else {
-			conditionExpression();
+			binary(LOGICAL);
 		}
+		exit(CompileMetrics.CONDITION, start);
 	}
 
-	private void conditionExpression() throws Exception {
-		expression();
-		if (token != null && token.getType() == TokenType.REL_OPERATOR) {
-			match(TokenType.REL_OPERATOR);
-			expression();
-		}
-		conditionTail();
+	// as produções de expressão devolvem o tipo (INT ou FLOAT) quando há SymbolTable, 0 sem ela
+	private int expression() throws Exception {
+		long start = enter();
+		int type = binary(ADDITIVE);
+		exit(CompileMetrics.EXPRESSION, start);
+		return type;
 	}
 
-	private void conditionTail() throws Exception {
-		while (token != null && (token.getType() == TokenType.AND_OPERATOR || token.getType() == TokenType.OR_OPERATOR)) {
-			token = scanner.nextToken();
-			if (token != null && token.getType() == TokenType.LEFT_PAREN) {
+	/*
+	 * Precedence climbing sobre o código de operador de cada token: um
+	 * operando e, enquanto o operador corrente tiver precedência >= min, o
+	 * operador e seu lado direito, que só aceita operadores de precedência
+	 * maior. Cada operador fecha um nó com tudo que veio antes desde a marca
+	 * do quadro (associatividade à esquerda), na mesma ordem das antigas
+	 * produções expression/term e condition.
+	 *
+	 * No mesmo quadro a precedência nunca sobe, e dois relacionais não se
+	 * seguem: o que sobra (um segundo relacional, um '+' depois de "E (...)")
+	 * fica para quem chamou acusar, com a mesma mensagem de antes.
+	 *
+	 * Não há recursão: o quadro do topo fica em variáveis locais e os de baixo
+	 * na pilha frames. Um lado direito só ganha quadro próprio quando o
+	 * operador seguinte tem precedência maior (senão o operador é fechado
+	 * logo), e cada '(' abre um quadro; parênteses aninhados não consomem a
+	 * pilha do Java.
+	 */
+	private int binary(int min) throws Exception {
+		frameCount = 0;
+		int mark = mark();
+		int then = RETURN;
+		int type = 0;
+		int last = Integer.MAX_VALUE;
+		// operador à espera do lado direito: precedência (0 se nenhum), token e marca onde o lado direito começa
+		int pending = 0;
+		int operator = -1;
+		int right = 0;
+		// inícios medidos: do fator e da expressão de um '(', e da expressão à direita de um relacional
+		long factorStart = 0;
+		long expressionStart = 0;
+		long rightStart = 0;
+		while (true) {
+			long start = enter();
+			if (current() == null) {
+				throw error(text -> "Fim de arquivo inesperado");
+			}
+			int value;
+			if (current() == TokenType.IDENTIFIER) {
+				int name = tokens.index();
+				leaf(Ast.IDENTIFIER);
+				tokens.advance();
+				value = reference(name);
+			} else if (current() == TokenType.NUMBER_INTEGER) {
+				int number = tokens.index();
+				leaf(Ast.INTEGER);
+				tokens.advance();
+				value = integer(number);
+			} else if (current() == TokenType.NUMBER_FLOAT) {
+				leaf(Ast.FLOAT);
+				tokens.advance();
+				value = symbols != null ? SymbolTable.FLOAT : 0;
+			} else if (current() == TokenType.LEFT_PAREN) {
 				match(TokenType.LEFT_PAREN);
-				conditionExpression();
-				match(TokenType.RIGHT_PAREN);
+				push(min, mark, then, type, last, pending, operator, right, factorStart, expressionStart, rightStart);
+				min = ADDITIVE;
+				mark = mark();
+				then = PAREN;
+				last = Integer.MAX_VALUE;
+				pending = 0;
+				factorStart = start;
+				expressionStart = enter();
+				continue;
 			} else {
-				expression();
-				if (token != null && token.getType() == TokenType.REL_OPERATOR) {
-					match(TokenType.REL_OPERATOR);
-					expression();
+				TokenType found = current();
+				throw error(text -> "Esperado identificador, número ou '(', mas encontrado " + 
+				found + "(" + text + ")");
+			}
+			exit(CompileMetrics.FACTOR, start);
+
+			// value é um operando novo; depois, o resultado de um quadro que terminou
+			boolean operand = true;
+			while (true) {
+				int precedence = PRECEDENCE[tokens.operator()];
+				if (operand && pending == 0) {
+					type = value;
+				} else if (operand && precedence > pending) {
+					// o lado direito continua com operadores de precedência maior: ganha um quadro
+					push(min, mark, then, type, last, pending, operator, right, factorStart, expressionStart, rightStart);
+					min = pending + 1;
+					mark = right;
+					then = COMBINE;
+					type = value;
+					last = Integer.MAX_VALUE;
+					pending = 0;
+				} else {
+					if (pending == LOGICAL) {
+						close(Ast.LOGICAL, operator, mark);
+					} else if (pending == RELATIONAL) {
+						exit(CompileMetrics.EXPRESSION, rightStart);
+						close(Ast.RELATIONAL, operator, mark);
+					} else {
+						type = Math.max(type, value);
+						close(Ast.BINARY, operator, mark);
+					}
+					last = pending;
+					pending = 0;
+				}
+
+				if (precedence >= min && precedence <= last && !(precedence == RELATIONAL && last == RELATIONAL)) {
+					operator = tokens.index();
+					pending = precedence;
+					tokens.advance();
+					if (precedence == LOGICAL && current() == TokenType.LEFT_PAREN) {
+						// depois de E/OU, um '(' abre uma condição inteira entre parênteses
+						match(TokenType.LEFT_PAREN);
+						push(min, mark, then, type, last, pending, operator, right, factorStart, expressionStart, rightStart);
+						min = LOGICAL;
+						mark = mark();
+						then = GROUP;
+						last = Integer.MAX_VALUE;
+						pending = 0;
+					} else {
+						right = mark();
+						if (precedence == RELATIONAL) {
+							rightStart = enter();
+						}
+					}
+					break;
 				}
+
+				// o quadro terminou: o resultado vai para o quadro de baixo
+				value = type;
+				if (then == RETURN) {
+					return value;
+				}
+				int finished = then;
+				if (finished == PAREN) {
+					exit(CompileMetrics.EXPRESSION, expressionStart);
+					match(TokenType.RIGHT_PAREN);
+					exit(CompileMetrics.FACTOR, factorStart);
+				} else if (finished == GROUP) {
+					match(TokenType.RIGHT_PAREN);
+				}
+				frameCount--;
+				int f = frameCount * FRAME;
+				min = frames[f + MIN];
+				mark = frames[f + MARK];
+				then = frames[f + THEN];
+				type = frames[f + TYPE];
+				last = frames[f + LAST];
+				pending = frames[f + PENDING];
+				operator = frames[f + OPERATOR];
+				right = frames[f + RIGHT];
+				factorStart = starts[frameCount * 3];
+				expressionStart = starts[frameCount * 3 + 1];
+				rightStart = starts[frameCount * 3 + 2];
+				// um parêntese é um operando do quadro de baixo; os outros fecham o operador que está nele
+				operand = finished == PAREN;
 			}
 		}
 	}
 
-	private void expression() throws Exception {
-		term();
-		expressionTail();
+	private void push(int min, int mark, int then, int type, int last, int pending, int operator, int right,
+			long factorStart, long expressionStart, long rightStart) {
+		if (frameCount * FRAME == frames.length) {
+			frames = Arrays.copyOf(frames, frames.length * 2);
+			starts = Arrays.copyOf(starts, starts.length * 2);
+		}
+		int f = frameCount * FRAME;
+		frames[f + MIN] = min;
+		frames[f + MARK] = mark;
+		frames[f + THEN] = then;
+		frames[f + TYPE] = type;
+		frames[f + LAST] = last;
+		frames[f + PENDING] = pending;
+		frames[f + OPERATOR] = operator;
+		frames[f + RIGHT] = right;
+		starts[frameCount * 3] = factorStart;
+		starts[frameCount * 3 + 1] = expressionStart;
+		starts[frameCount * 3 + 2] = rightStart;
+		frameCount++;
 	}
 
-	private void expressionTail() throws Exception {
-		while (token != null && token.getType() == TokenType.MATH_OPERATOR) {
-			String op = token.getText();
-			if (op.equals("+") || op.equals("-")) {
-				token = scanner.nextToken();
-				term();
-			} else {
-				break;
+	private void match(TokenType expectedType) throws Exception {
+		if (current() == null) {
+			throw error(text -> "Esperado token " + expectedType + ", mas não foi encontrado");
+		}
+
+		if (current() == expectedType) {
+			tokens.advance();
+		} else {
+			TokenType found = current();
+			throw error(text -> "Esperado token " + expectedType + ", mas foi encontrado " + 
+			found + "(" + text + ")");
+		}
+	}
+
+	private TokenType current() {
+		return tokens.type();
+	}
+
+	// message recebe o texto do token; texto, mensagem e posição só são calculados se alguém os pedir
+	private SyntacticException error(UnaryOperator<String> message) {
+		if (metrics != null) {
+			metrics.syntacticError();
+		}
+		return new SyntacticException(message, new TokenLocation(tokens, tokens.index()));
+	}
+
+	/*
+	 * Token de índice index. Num TokenBuffer ele continua acessível pelo índice
+	 * depois que o Parser avança; nas outras fontes vale o token atual, que não
+	 * muda: sem recuperação o Parser para no erro, e com recuperação report()
+	 * lê o erro antes de synchronize() avançar.
+	 */
+	private static final class TokenLocation implements SyntacticException.Location {
+		private final TokenSource tokens;
+		private final int index;
+
+		TokenLocation(TokenSource tokens, int index) {
+			this.tokens = tokens;
+			this.index = index;
+		}
+
+		@Override
+		public String text() {
+			if (tokens instanceof TokenBuffer) {
+				TokenBuffer buffer = (TokenBuffer) tokens;
+				return index < buffer.size() ? buffer.text(index) : null;
+			}
+			return tokens.text();
+		}
+
+		@Override
+		public int line() {
+			if (tokens instanceof TokenBuffer) {
+				TokenBuffer buffer = (TokenBuffer) tokens;
+				return buffer.lines().line(buffer.offset(index));
 			}
+			return tokens.line();
+		}
+
+		@Override
+		public int column() {
+			if (tokens instanceof TokenBuffer) {
+				TokenBuffer buffer = (TokenBuffer) tokens;
+				return buffer.lines().column(buffer.offset(index));
+			}
+			return tokens.column();
 		}
 	}
 
-	private void term() throws Exception {
-		factor();
-		termTail();
+	private void report(SyntacticException e) {
+		diagnostics.add(new Diagnostic(Diagnostic.Kind.SYNTACTIC, e.getMessage(), e.getLine(), e.getColumn()));
 	}
 
-	private void termTail() throws Exception {
-		while (token != null && token.getType() == TokenType.MATH_OPERATOR) {
-			String op = token.getText();
-			if (op.equals("*") || op.equals("/")) {
-				token = scanner.nextToken();
-				factor();
-			} else {
-				break;
+	private void recover(SyntacticException e, int mark) throws Exception {
+		if (diagnostics == null) {
+			throw e;
+		}
+		report(e);
+		if (ast != null) {
+			ast.discard(mark);
+		}
+		synchronize();
+	}
+
+	// modo pânico: pula até depois do próximo ';' ou até o '}' que fecha o bloco
+	// corrente; blocos abertos no caminho são pulados inteiros
+	private void synchronize() throws Exception {
+		int depth = 0;
+		while (current() != null) {
+			TokenType type = current();
+			if (type == TokenType.RIGHT_BRACE && depth == 0) {
+				return;
+			}
+			tokens.advance();
+			if (type == TokenType.LEFT_BRACE) {
+				depth++;
+			} else if (type == TokenType.RIGHT_BRACE) {
+				depth--;
+				if (depth == 0) {
+					return;
+				}
+			} else if (type == TokenType.SEMICOLON && depth == 0) {
+				return;
 			}
 		}
 	}
 
-	private void factor() throws Exception {
-		if (token == null) {
-			throw new SyntacticException("Fim de arquivo inesperado");
+	/*
+	 * Verificação semântica na mesma passada. Sem SymbolTable não fazem nada;
+	 * no modo de recuperação o erro vira diagnóstico e a análise continua, com
+	 * tipo 0 para o que não pôde ser resolvido.
+	 */
+	private void declare(int name, int type) throws SemanticException {
+		if (symbols != null) {
+			try {
+				symbols.declare(name, type);
+			} catch (SemanticException e) {
+				report(e);
+			}
 		}
+	}
 
-		if (token.getType() == TokenType.IDENTIFIER ||
-			token.getType() == TokenType.NUMBER_INTEGER ||
-			token.getType() == TokenType.NUMBER_FLOAT) {
-			token = scanner.nextToken();
-		} else if (token.getType() == TokenType.LEFT_PAREN) {
-			match(TokenType.LEFT_PAREN);
-			expression();
-			match(TokenType.RIGHT_PAREN);
-		} else {
-			throw new SyntacticException("Esperado identificador, número ou '(', mas encontrado " + 
-			token.getType() + "(" + token.getText() + ")");
+	// tipo da variável referida pelo token
+	private int reference(int name) throws SemanticException {
+		if (symbols == null) {
+			return 0;
+		}
+		try {
+			return symbols.type(symbols.resolve(name));
+		} catch (SemanticException e) {
+			report(e);
+			return 0;
 		}
 	}
 
-	private void match(TokenType expectedType) throws Exception {
-		if (token == null) {
-			throw new SyntacticException("Esperado token " + expectedType + ", mas não foi encontrado");
+	private void assign(int name, int type) throws SemanticException {
+		if (symbols != null) {
+			try {
+				symbols.assign(name, type);
+			} catch (SemanticException e) {
+				report(e);
+			}
 		}
+	}
 
-		if (token.getType() == expectedType) {
-			token = scanner.nextToken();
-		} else {
-			throw new SyntacticException("Esperado token " + expectedType + ", mas foi encontrado " + 
-			token.getType() + "(" + token.getText() + ")");
+	private int integer(int number) throws SemanticException {
+		if (symbols == null) {
+			return 0;
+		}
+		try {
+			symbols.checkInteger(number);
+		} catch (SemanticException e) {
+			report(e);
+		}
+		return SymbolTable.INT;
+	}
+
+	private void report(SemanticException e) throws SemanticException {
+		if (diagnostics == null) {
+			throw e;
+		}
+		diagnostics.add(new Diagnostic(Diagnostic.Kind.SEMANTIC, e.getDescription(), e.getLine(), e.getColumn()));
+	}
+
+	// tempos inclusivos; uma produção interrompida por erro não é contada
+	private long enter() {
+		return metrics != null ? System.nanoTime() : 0;
+	}
+
+	private void exit(int production, long start) {
+		if (metrics != null) {
+			metrics.production(production, start);
+		}
+	}
+
+	private int mark() {
+		return ast != null ? ast.mark() : 0;
+	}
+
+	private void close(int kind, int token, int mark) {
+		if (ast != null) {
+			ast.close(kind, token, mark);
+		}
+	}
+
+	// nó folha para o token corrente
+	private void leaf(int kind) {
+		if (ast != null) {
+			ast.leaf(kind, tokens.index());
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package util;
+
+import exceptions.LexicalError;
+
+// Um erro encontrado na compilação, com a posição no código-fonte.
+public class Diagnostic {
+	public enum Kind {
+		LEXICAL, SYNTACTIC, SEMANTIC
+	}
+
+	private final Kind kind;
+	private final String message;
+	private final int line;
+	private final int column;
+
+	public Diagnostic(Kind kind, String message, int line, int column) {
+		this.kind = kind;
+		this.message = message;
+		this.line = line;
+		this.column = column;
+	}
+
+	public static Diagnostic of(LexicalError e) {
+		return new Diagnostic(Kind.LEXICAL, e.getDescription(), e.getLine(), e.getColumn());
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public int getLine() {
+		return line;
+	}
+
+	public int getColumn() {
+		return column;
+	}
+
+	@Override
+	public String toString() {
+		return message + " (linha: " + line + ", coluna: " + column + ")";
+	}
+}
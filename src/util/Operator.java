@@ -0,0 +1,66 @@
+package util;
+
+/*
+ * Código de cada operador, decodificado uma vez pelo Scanner enquanto o texto
+ * do token ainda está no buffer; o Parser despacha por esse número em vez de
+ * comparar o texto. Tokens que não são operadores têm o código NONE.
+ *
+ * "=" e "!" sozinhos são REL_OPERATOR para o Scanner e valem como "==" e "!=",
+ * como sempre valeram na geração de código.
+ */
+public final class Operator {
+	public static final int NONE = 0;
+	public static final int ADD = 1;
+	public static final int SUBTRACT = 2;
+	public static final int MULTIPLY = 3;
+	public static final int DIVIDE = 4;
+	public static final int EQUAL = 5;
+	public static final int NOT_EQUAL = 6;
+	public static final int LESS = 7;
+	public static final int LESS_EQUAL = 8;
+	public static final int GREATER = 9;
+	public static final int GREATER_EQUAL = 10;
+	public static final int AND = 11;
+	public static final int OR = 12;
+
+	public static final int COUNT = 13;
+
+	private Operator() {
+	}
+
+	public static int decode(TokenType type, char[] chars, int offset, int length) {
+		if (type == null) {
+			return NONE;
+		}
+		switch (type) {
+			case MATH_OPERATOR:
+				switch (chars[offset]) {
+					case '+':
+						return ADD;
+					case '-':
+						return SUBTRACT;
+					case '*':
+						return MULTIPLY;
+					default:
+						return DIVIDE;
+				}
+			case REL_OPERATOR:
+				switch (chars[offset]) {
+					case '=':
+						return EQUAL;
+					case '!':
+						return NOT_EQUAL;
+					case '<':
+						return length > 1 ? LESS_EQUAL : LESS;
+					default:
+						return length > 1 ? GREATER_EQUAL : GREATER;
+				}
+			case AND_OPERATOR:
+				return AND;
+			case OR_OPERATOR:
+				return OR;
+			default:
+				return NONE;
+		}
+	}
+}
@@ -30,4 +30,66 @@ public class ReservedWords {
             Map.entry("E", AND_OPERATOR),
             Map.entry("OU", OR_OPERATOR)
     );
+
+    // Reconhece as mesmas palavras de WORDS direto do buffer, sem criar String.
+    // Devolve null quando o trecho é um identificador comum.
+    public static TokenType lookup(char[] chars, int offset, int length) {
+        switch (length) {
+            case 1:
+                return chars[offset] == 'E' ? AND_OPERATOR : null;
+            case 2:
+                if (chars[offset] == 'i') {
+                    return chars[offset + 1] == 'f' ? CONDITIONAL_IF_STATEMENT : null;
+                }
+                if (chars[offset] == 'O') {
+                    return chars[offset + 1] == 'U' ? OR_OPERATOR : null;
+                }
+                return null;
+            case 3:
+                switch (chars[offset]) {
+                    case 'i':
+                        return rest(chars, offset, "int") ? INTEGER_DATA_TYPE : null;
+                    case 'f':
+                        return rest(chars, offset, "for") ? LOOP_FOR_STATEMENT : null;
+                    case 'v':
+                        return rest(chars, offset, "var") ? VARIABLE_DECLARATION : null;
+                    default:
+                        return null;
+                }
+            case 4:
+                switch (chars[offset]) {
+                    case 'e':
+                        return rest(chars, offset, "else") ? ALTERNATIVE_ELSE_STATEMENT : null;
+                    case 't':
+                        return rest(chars, offset, "then") ? DO_STATEMENT : null;
+                    case 'm':
+                        return rest(chars, offset, "main") ? MAIN_FUNCTION : null;
+                    default:
+                        return null;
+                }
+            case 5:
+                switch (chars[offset]) {
+                    case 'f':
+                        return rest(chars, offset, "float") ? FLOATING_DATA_TYPE : null;
+                    case 'p':
+                        return rest(chars, offset, "print") ? PRINT_STATEMENT : null;
+                    case 'i':
+                        return rest(chars, offset, "input") ? INPUT_STATEMENT : null;
+                    default:
+                        return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    private static boolean rest(char[] chars, int offset, String word) {
+        // o primeiro caractere já foi testado no switch
+        for (int i = 1; i < word.length(); i++) {
+            if (chars[offset + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }